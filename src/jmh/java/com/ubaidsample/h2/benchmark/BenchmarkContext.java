@@ -0,0 +1,79 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.benchmark;
+
+import com.ubaidsample.h2.Application;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Boots the application without the web layer against a private in-memory H2 database
+ * seeded with the requested number of users.
+ */
+final class BenchmarkContext {
+
+    private static final String INSERT_SQL = "INSERT INTO users (user_id, idempotency_key, user_name, email, password, date_of_birth, "
+            + "date_of_leaving, postal_code, created_by, created_date, is_deleted) "
+            + "VALUES (NEXT VALUE FOR users_seq, ?, ?, ?, ?, ?, ?, ?, 'bench', CURRENT_TIMESTAMP, FALSE)";
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(int rowCount) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .profiles("dev")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:sb-h2-bench-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+                        "spring.main.lazy-initialization=false",
+                        "spring.jpa.properties.hibernate.show_sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.org.springframework=WARN",
+                        "logging.level.org.hibernate=WARN",
+                        "logging.level.com.zaxxer.hikari=WARN",
+                        "logging.file.name=")
+                .run();
+        seed(context.getBean(JdbcTemplate.class), rowCount);
+        return context;
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, int rowCount) {
+        LocalDate birth = LocalDate.of(1970, 1, 1);
+        for (int start = 0; start < rowCount; start += SEED_BATCH_SIZE) {
+            int from = start;
+            int to = Math.min(rowCount, start + SEED_BATCH_SIZE);
+            jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    int n = from + i;
+                    ps.setString(1, "BENCH-" + n);
+                    ps.setString(2, "bench.user" + n);
+                    ps.setString(3, "bench.user" + n + "@example.com");
+                    ps.setString(4, "pass123");
+                    ps.setDate(5, Date.valueOf(birth.plusDays(n % 10_000)));
+                    ps.setDate(6, Date.valueOf(LocalDate.of(2060, 12, 31)));
+                    ps.setInt(7, 56000 + n % 100);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return to - from;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.benchmark;
+
+import com.ubaidsample.h2.util.EntityUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EntityUtil.convertValue per target type, from the JSON-decoded values filters arrive with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertValueBenchmark {
+
+    @Param({"String", "Integer", "Long", "Double", "Boolean", "LocalDate", "LocalDateTime", "IntegerList"})
+    private String targetType;
+
+    private Class<?> type;
+    private Object value;
+
+    @Setup
+    public void setUp() {
+        switch (targetType) {
+            case "String" -> { type = String.class; value = "john.doe"; }
+            case "Integer" -> { type = Integer.class; value = 56001; }
+            case "Long" -> { type = Long.class; value = 42; }
+            case "Double" -> { type = Double.class; value = 12.5; }
+            case "Boolean" -> { type = Boolean.class; value = Boolean.TRUE; }
+            case "LocalDate" -> { type = LocalDate.class; value = "1995-01-01"; }
+            case "LocalDateTime" -> { type = LocalDateTime.class; value = "2024-01-01T10:15:30"; }
+            case "IntegerList" -> { type = Integer.class; value = List.of(56001, 56002, 56003, 56004); }
+            default -> throw new IllegalArgumentException("Unknown target type: " + targetType);
+        }
+    }
+
+    @Benchmark
+    public Object convertValue() {
+        return EntityUtil.convertValue(type, value);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.benchmark;
+
+import com.ubaidsample.h2.dto.common.AuditHistoryDTO;
+import com.ubaidsample.h2.dto.response.UserResponseDTO;
+import com.ubaidsample.h2.entity.User;
+import com.ubaidsample.h2.util.MapperUtil;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.convention.MatchingStrategies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User → UserResponseDTO through MapperUtil (compiled mapper) and through a plain
+ * reflective ModelMapper with the same STRICT matching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private ModelMapper modelMapper;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        modelMapper.getConfiguration().setMatchingStrategy(MatchingStrategies.STRICT);
+        AuditHistoryDTO audit = new AuditHistoryDTO("system", LocalDateTime.now(), "system", LocalDateTime.now(), false, null);
+        user = new User();
+        user.setUserId(1L);
+        user.setIdempotencyKey("IDEMP-001");
+        user.setUserName("john.doe");
+        user.setEmail("john@example.com");
+        user.setPassword("pass123");
+        user.setDateOfBirth(LocalDate.of(1998, 2, 15));
+        user.setDateOfLeaving(LocalDate.of(2060, 12, 31));
+        user.setPostalCode(56001);
+        user.setAuditHistoryDTO(audit);
+    }
+
+    @Benchmark
+    public UserResponseDTO mapperUtil() {
+        return MapperUtil.map(user, UserResponseDTO.class);
+    }
+
+    @Benchmark
+    public UserResponseDTO modelMapper() {
+        return modelMapper.map(user, UserResponseDTO.class);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.benchmark;
+
+import com.ubaidsample.h2.dto.common.FilterPlanCache;
+import com.ubaidsample.h2.dto.request.FilterRequestDTO;
+import com.ubaidsample.h2.dto.request.PageRequestDTO;
+import com.ubaidsample.h2.dto.response.PageResponseDTO;
+import com.ubaidsample.h2.dto.response.UserResponseDTO;
+import com.ubaidsample.h2.entity.User;
+import com.ubaidsample.h2.repository.UserRepository;
+import com.ubaidsample.h2.service.PageCountCache;
+import com.ubaidsample.h2.service.PaginationService;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end PaginationService.getPaginatedData against an in-memory H2 seeded with rowCount
+ * users (-p rowCount=... to change it), one read-only transaction per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+
+    @Param({"100000"})
+    private int rowCount;
+
+    @Param({"exact", "none", "keyset"})
+    private String mode;
+
+    @Param({"0", "500"})
+    private int page;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transactionTemplate;
+    private PaginationService<User, UserResponseDTO> paginationService;
+    private PageRequestDTO pageRequest;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(rowCount);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+        paginationService = new PaginationService<>(context.getBean(UserRepository.class), context.getBean(EntityManager.class),
+                context.getBean(PageCountCache.class), context.getBean(FilterPlanCache.class), User.class, UserResponseDTO.class);
+        pageRequest = new PageRequestDTO();
+        pageRequest.setSize(20);
+        pageRequest.setSortBy("userName");
+        pageRequest.setFilters(List.of(new FilterRequestDTO("dateOfBirth", "gte", "1980-01-01")));
+        if ("keyset".equals(mode)) {
+            pageRequest.setCountMode("none");
+            pageRequest.setCursor(keysetCursor(page));
+        } else {
+            pageRequest.setCountMode(mode);
+            pageRequest.setPage(page);
+        }
+    }
+
+    /**
+     * Walks the keyset pages once so the measured call seeks to the same depth as the
+     * offset variants.
+     */
+    private String keysetCursor(int targetPage) {
+        String cursor = "";
+        pageRequest.setCursor(cursor);
+        for (int i = 0; i < targetPage && cursor != null; i++) {
+            cursor = search().getNextCursor();
+            pageRequest.setCursor(cursor);
+        }
+        return cursor == null ? "" : cursor;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PageResponseDTO<UserResponseDTO> search() {
+        return transactionTemplate.execute(status -> paginationService.getPaginatedData(pageRequest));
+    }
+}
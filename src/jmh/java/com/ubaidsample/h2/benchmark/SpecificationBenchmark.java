@@ -0,0 +1,89 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.benchmark;
+
+import com.ubaidsample.h2.dto.common.FilterPlanCache;
+import com.ubaidsample.h2.dto.common.GenericSpecification;
+import com.ubaidsample.h2.dto.request.FilterRequestDTO;
+import com.ubaidsample.h2.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GenericSpecification.toPredicate over a fresh criteria query, at several filter counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecificationBenchmark {
+
+    @Param({"1", "4", "16"})
+    private int filterCount;
+
+    @Param({"none", "john"})
+    private String search;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager entityManager;
+    private FilterPlanCache planCache;
+    private List<FilterRequestDTO> filters;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(0);
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+        planCache = context.getBean(FilterPlanCache.class);
+        List<FilterRequestDTO> shapes = List.of(
+                new FilterRequestDTO("postalCode", "eq", 56001),
+                new FilterRequestDTO("dateOfBirth", "gte", "1995-01-01"),
+                new FilterRequestDTO("userName", "like", "john"),
+                new FilterRequestDTO("postalCode", "in", List.of(56001, 56002, 56003)));
+        filters = new ArrayList<>(filterCount);
+        for (int i = 0; i < filterCount; i++) {
+            filters.add(shapes.get(i % shapes.size()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Predicate toPredicate() {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> root = query.from(User.class);
+        return new GenericSpecification<User>("none".equals(search) ? null : search, filters, planCache).toPredicate(root, query, cb);
+    }
+}
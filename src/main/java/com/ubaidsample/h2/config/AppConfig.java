@@ -8,6 +8,8 @@
 package com.ubaidsample.h2.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableScheduling
 public class AppConfig {}
\ No newline at end of file
@@ -1,24 +0,0 @@
-/*
- * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
- * Email: shahbazhrn@gmail.com
- * Cell: +923002585925
- * GitHub: https://github.com/ShahbazHaroon
- */
-
-package com.ubaidsample.h2.config;
-
-import org.modelmapper.ModelMapper;
-import org.modelmapper.convention.MatchingStrategies;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-@Configuration
-public class ModelMapperConfig {
-
-    @Bean
-    public ModelMapper modelMapper() {
-        ModelMapper modelMapper = new ModelMapper();
-        modelMapper.getConfiguration().setMatchingStrategy(MatchingStrategies.STRICT);
-        return modelMapper;
-    }
-}
\ No newline at end of file
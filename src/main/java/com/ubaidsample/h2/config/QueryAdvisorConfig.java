@@ -0,0 +1,28 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.config;
+
+import com.ubaidsample.h2.service.QueryShapeAdvisor;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lets {@link QueryShapeAdvisor} see the SQL Hibernate generates for search queries. The
+ * inspector is static so the entity manager factory does not depend on the advisor bean.
+ */
+@Configuration
+public class QueryAdvisorConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryShapeInspectorCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) QueryShapeAdvisor::capture);
+    }
+}
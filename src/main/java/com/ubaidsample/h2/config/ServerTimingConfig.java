@@ -0,0 +1,101 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ubaidsample.h2.util.AccountingDataSource;
+import com.ubaidsample.h2.util.RequestTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Per-request accounting of the user API, sent back as a Server-Timing header:
+ * <pre>
+ * Server-Timing: db;dur=1.84;desc="3 statements, 1 rows", mapping;dur=0.21, serialization;dur=0.35, total;dur=4.10
+ * </pre>
+ * Work done while streaming a body, after that header is sent, goes to user.stream.* meters.
+ */
+@Configuration
+public class ServerTimingConfig {
+
+    // Static so the DataSource is wrapped however early it is created
+    @Bean
+    public static BeanPostProcessor accountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof AccountingDataSource)
+                        ? new AccountingDataSource(dataSource) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(MeterRegistry registry) {
+        FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(new ServerTimingFilter(registry));
+        registration.addUrlPatterns("/api/v1/user/*");
+        return registration;
+    }
+
+    @Bean
+    public WebMvcConfigurer streamTimingConfigurer(MeterRegistry registry) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.registerCallableInterceptors(new StreamTimingInterceptor(registry));
+            }
+        };
+    }
+
+    /**
+     * Replaces Boot's JSON converter: during an accounted request the body is serialized into
+     * a buffer first, so its serialization time is known when the header goes out.
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                RequestTiming timing = RequestTiming.current();
+                if (timing == null) {
+                    super.writeInternal(object, type, outputMessage);
+                    return;
+                }
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+                long started = System.nanoTime();
+                super.writeInternal(object, type, new HttpOutputMessage() {
+                    @Override
+                    public OutputStream getBody() {
+                        return buffer;
+                    }
+
+                    @Override
+                    public HttpHeaders getHeaders() {
+                        return outputMessage.getHeaders();
+                    }
+                });
+                timing.serialization(System.nanoTime() - started);
+                buffer.writeTo(outputMessage.getBody());
+            }
+        };
+    }
+}
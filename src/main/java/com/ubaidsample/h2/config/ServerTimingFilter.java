@@ -0,0 +1,137 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.config;
+
+import com.ubaidsample.h2.util.RequestTiming;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accounts each user API request in a {@link RequestTiming}, sends the figures in a
+ * Server-Timing header (added just before the response is committed) and records them as
+ * user.request.* meters tagged with the endpoint. Bodies streamed after the header are
+ * accounted by {@link StreamTimingInterceptor}.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+
+    public ServerTimingFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTiming timing = RequestTiming.start();
+        ServerTimingResponse timedResponse = new ServerTimingResponse(response, timing);
+        try {
+            filterChain.doFilter(request, timedResponse);
+            // Responses without a body are committed by the container after this
+            timedResponse.addServerTiming();
+        } finally {
+            RequestTiming.end();
+            record(registry, "user.request", endpoint(request), timing);
+        }
+    }
+
+    static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern == null ? "unmapped" : pattern);
+    }
+
+    /**
+     * Records one timing as prefix.db, .mapping, .serialization, .statements and .rows meters.
+     */
+    static void record(MeterRegistry registry, String prefix, String endpoint, RequestTiming timing) {
+        timer(registry, prefix + ".db", "Time spent in JDBC statements and fetching rows", endpoint)
+                .record(timing.getDbNanos(), TimeUnit.NANOSECONDS);
+        timer(registry, prefix + ".mapping", "Time spent mapping entities and DTOs", endpoint)
+                .record(timing.getMappingNanos(), TimeUnit.NANOSECONDS);
+        timer(registry, prefix + ".serialization", "Time spent writing the JSON body", endpoint)
+                .record(timing.getSerializationNanos(), TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(prefix + ".statements")
+                .description("JDBC statements executed per request")
+                .tag("endpoint", endpoint)
+                .register(registry)
+                .record(timing.getStatements());
+        DistributionSummary.builder(prefix + ".rows")
+                .description("Rows fetched per request")
+                .tag("endpoint", endpoint)
+                .register(registry)
+                .record(timing.getRows());
+    }
+
+    private static Timer timer(MeterRegistry registry, String name, String description, String endpoint) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("endpoint", endpoint)
+                .register(registry);
+    }
+
+    private static final class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTiming timing;
+        private boolean added;
+
+        private ServerTimingResponse(HttpServletResponse response, RequestTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        private void addServerTiming() {
+            if (!added && !isCommitted()) {
+                added = true;
+                setHeader(RequestTiming.HEADER, timing.toHeader());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+    }
+}
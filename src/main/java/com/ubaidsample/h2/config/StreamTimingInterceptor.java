@@ -0,0 +1,55 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.config;
+
+import com.ubaidsample.h2.util.RequestTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Accounts a streamed body (StreamingResponseBody of GET / and /export) on the async thread
+ * that writes it. Its Server-Timing header has already gone out with the request-thread
+ * figures, so the statements and rows read while streaming are recorded as user.stream.*
+ * meters tagged with the endpoint instead.
+ */
+public class StreamTimingInterceptor implements CallableProcessingInterceptor {
+
+    private static final String TIMING_ATTRIBUTE = StreamTimingInterceptor.class.getName() + ".timing";
+
+    private final MeterRegistry registry;
+
+    public StreamTimingInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        // An executor that runs the body on the request thread leaves it to the request's timing
+        if (RequestTiming.current() == null) {
+            request.setAttribute(TIMING_ATTRIBUTE, RequestTiming.start(), RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        Object timing = request.getAttribute(TIMING_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (timing == null) {
+            return;
+        }
+        RequestTiming.end();
+        request.removeAttribute(TIMING_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+        String endpoint = servletRequest == null ? "unmapped" : ServerTimingFilter.endpoint(servletRequest);
+        ServerTimingFilter.record(registry, "user.stream", endpoint, (RequestTiming) timing);
+    }
+}
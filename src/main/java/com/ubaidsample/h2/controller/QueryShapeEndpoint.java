@@ -0,0 +1,40 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.controller;
+
+import com.ubaidsample.h2.dto.response.QueryShapeDTO;
+import com.ubaidsample.h2.service.QueryShapeAdvisor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * /actuator/queryshapes: the most expensive search query shapes with their plans and index
+ * suggestions; DELETE starts the statistics over.
+ */
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "queryshapes")
+public class QueryShapeEndpoint {
+
+    private final QueryShapeAdvisor queryShapeAdvisor;
+
+    @ReadOperation
+    public List<QueryShapeDTO> shapes() {
+        return queryShapeAdvisor.topShapes();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        queryShapeAdvisor.reset();
+    }
+}
@@ -10,9 +10,23 @@ package com.ubaidsample.h2.controller;
 import com.ubaidsample.h2.dto.request.PageRequestDTO;
 import com.ubaidsample.h2.dto.request.UserPartialUpdateRequestDTO;
 import com.ubaidsample.h2.dto.request.UserRequestDTO;
+import com.ubaidsample.h2.dto.request.UserStatusRequestDTO;
+import com.ubaidsample.h2.dto.response.AvailabilityResponseDTO;
+import com.ubaidsample.h2.dto.response.BatchResponseDTO;
+import com.ubaidsample.h2.dto.response.BulkUpdateResponseDTO;
+import com.ubaidsample.h2.dto.response.ImportJobDTO;
+import com.ubaidsample.h2.dto.response.MultiGetResponseDTO;
 import com.ubaidsample.h2.dto.response.PageResponseDTO;
+import com.ubaidsample.h2.dto.response.StreamResponseDTO;
 import com.ubaidsample.h2.dto.response.UserResponseDTO;
+import com.ubaidsample.h2.dto.response.WriteStatusDTO;
+import com.ubaidsample.h2.service.AvailabilityService;
+import com.ubaidsample.h2.service.UserArchiveService;
+import com.ubaidsample.h2.service.UserBatchService;
+import com.ubaidsample.h2.service.UserImportService;
 import com.ubaidsample.h2.service.UserService;
+import com.ubaidsample.h2.service.UserWriteBehindService;
+import com.ubaidsample.h2.util.ETagUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -21,9 +35,14 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -36,22 +55,48 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserController {
 
+    // "true" when GET /api/v1/user stops at app.user.find-all.max-rows with more users left
+    private static final String TRUNCATED_HEADER = "X-Truncated";
+
     private final UserService service;
 
+    private final UserBatchService batchService;
+
+    private final UserImportService importService;
+
+    private final AvailabilityService availabilityService;
+
+    private final UserWriteBehindService writeBehindService;
+
+    private final UserArchiveService archiveService;
+
     @Operation(
             summary = "Create new resource",
             description = "Creates a new resource with the provided information"
     )
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "Resource created successfully"),
+            @ApiResponse(responseCode = "202", description = "Resource queued for a background write (async=true)"),
             @ApiResponse(responseCode = "400", description = "Invalid data provided"),
-            @ApiResponse(responseCode = "409", description = "Resource already exists")
+            @ApiResponse(responseCode = "409", description = "Resource already exists"),
+            @ApiResponse(responseCode = "429", description = "Write queue is full; retry after the Retry-After delay")
     })
     @PostMapping
-    public ResponseEntity<UserResponseDTO> save(
+    public ResponseEntity<?> save(
             @Parameter(description = "Resource data to create")
-            @Valid @RequestBody UserRequestDTO request) {
+            @Valid @RequestBody UserRequestDTO request,
+            @Parameter(description = "Queue the write and return 202 with a status URL instead of waiting for the commit")
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
         log.info("UserController -> save() called");
+        if (async) {
+            var status = writeBehindService.submit(request);
+            URI location = ServletUriComponentsBuilder
+                    .fromCurrentRequestUri()
+                    .path("/pending/{id}")
+                    .buildAndExpand(status.getReservedId())
+                    .toUri();
+            return ResponseEntity.accepted().location(location).body(status);
+        }
         var response = service.save(request);
         URI location = ServletUriComponentsBuilder
                 .fromCurrentRequest()
@@ -61,17 +106,169 @@ public class UserController {
         return ResponseEntity.created(location).body(response);
     }
 
+    @Operation(
+            summary = "Create resources in bulk",
+            description = "Creates many resources in one request and reports the outcome of each item in request order"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Batch processed; see the status of each item"),
+            @ApiResponse(responseCode = "400", description = "Empty batch"),
+            @ApiResponse(responseCode = "413", description = "Batch exceeds the configured maximum size")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponseDTO> saveAll(
+            @Parameter(description = "Resources to create; invalid items are reported, not rejected as a whole")
+            @RequestBody List<UserRequestDTO> requests) {
+        log.info("UserController -> saveAll() called");
+        var response = batchService.saveAll(requests);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Upsert resources in bulk",
+            description = "Creates the resources whose idempotency key is new and returns the stored resource for every valid item"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Batch processed; see the status of each item"),
+            @ApiResponse(responseCode = "400", description = "Empty batch"),
+            @ApiResponse(responseCode = "413", description = "Batch exceeds the configured maximum size")
+    })
+    @PostMapping("/upsert")
+    public ResponseEntity<BatchResponseDTO> upsertAll(
+            @Parameter(description = "Resources to upsert; invalid items are reported, not rejected as a whole")
+            @RequestBody List<UserRequestDTO> requests) {
+        log.info("UserController -> upsertAll() called");
+        var response = batchService.upsertAll(requests);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Import resources from a file",
+            description = "Starts a background import of a CSV or NDJSON file; poll the returned job for progress"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Import accepted"),
+            @ApiResponse(responseCode = "400", description = "Missing file or unsupported format")
+    })
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobDTO> importFile(
+            @Parameter(description = "CSV (header row with the JSON property names) or NDJSON file")
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "File format: ndjson or csv; taken from the file extension when omitted")
+            @RequestParam(value = "format", required = false) String format) {
+        log.info("UserController -> importFile() called");
+        var response = importService.submit(file, format);
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .path("/{jobId}")
+                .buildAndExpand(response.getJobId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(response);
+    }
+
+    @Operation(
+            summary = "Get import progress",
+            description = "Retrieves the progress and rejected rows of a file import"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Import job retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Import job not found")
+    })
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ImportJobDTO> findImportJob(
+            @Parameter(description = "ID of the import job")
+            @PathVariable(value = "jobId") String jobId) {
+        log.info("UserController -> findImportJob() called with ID: {}", jobId);
+        var response = importService.findJob(jobId);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Get background write status",
+            description = "Reports whether a create accepted with async=true has been written"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Write status found"),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired id")
+    })
+    @GetMapping("/pending/{id}")
+    public ResponseEntity<WriteStatusDTO> findWriteStatus(
+            @Parameter(description = "Id returned when the create was accepted")
+            @PathVariable(value = "id") @Positive Long id) {
+        log.info("UserController -> findWriteStatus() called with ID: {}", id);
+        var response = writeBehindService.findStatus(id);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Get resources by IDs",
+            description = "Retrieves many resources in request order; ids without a resource are listed under missing"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Resources retrieved"),
+            @ApiResponse(responseCode = "413", description = "More ids than the configured maximum")
+    })
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResponseDTO> findAllById(
+            @Parameter(description = "Comma-separated IDs of the resources to retrieve")
+            @RequestParam("ids") List<Long> ids) {
+        log.info("UserController -> findAllById() called");
+        var response = service.findAllById(ids);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Get resources by IDs (request body)",
+            description = "Same as GET with ids, for lists too long for a query string"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Resources retrieved"),
+            @ApiResponse(responseCode = "400", description = "No ids given"),
+            @ApiResponse(responseCode = "413", description = "More ids than the configured maximum")
+    })
+    @PostMapping("/lookup")
+    public ResponseEntity<MultiGetResponseDTO> lookup(
+            @Parameter(description = "IDs of the resources to retrieve")
+            @RequestBody List<Long> ids) {
+        log.info("UserController -> lookup() called");
+        var response = service.findAllById(ids);
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(
             summary = "Get all resources",
-            description = "Retrieves a list of all resources"
+            description = "Streams all active resources as a JSON array, up to the configured server-side maximum; X-Truncated tells whether more were left out"
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Resources retrieved successfully")
+            @ApiResponse(responseCode = "200", description = "Resources retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "No resources found")
     })
     @GetMapping
-    public ResponseEntity<List<UserResponseDTO>> findAll() {
+    public ResponseEntity<StreamingResponseBody> findAll() {
         log.info("UserController -> findAll() called");
-        var response = service.findAll();
+        StreamResponseDTO response = service.findAll();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(TRUNCATED_HEADER, String.valueOf(response.isTruncated()))
+                .body(response.getBody());
+    }
+
+    @Operation(
+            summary = "Check user name and email availability",
+            description = "Reports whether the given user name and/or email can still be used for a new resource"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Availability of each value that was asked for"),
+            @ApiResponse(responseCode = "400", description = "Neither a user name nor an email was given")
+    })
+    @GetMapping("/availability")
+    public ResponseEntity<AvailabilityResponseDTO> checkAvailability(
+            @Parameter(description = "User name to check")
+            @RequestParam(value = "userName", required = false) String userName,
+            @Parameter(description = "Email to check")
+            @RequestParam(value = "email", required = false) String email) {
+        log.info("UserController -> checkAvailability() called");
+        var response = availabilityService.check(userName, email);
         return ResponseEntity.ok(response);
     }
 
@@ -81,14 +278,41 @@ public class UserController {
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Resource retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Resource unchanged since the ETag in If-None-Match"),
             @ApiResponse(responseCode = "404", description = "Resource not found")
     })
     @GetMapping("/{id}")
     public ResponseEntity<UserResponseDTO> findById(
             @Parameter(description = "ID of the resource to retrieve")
-            @PathVariable(value = "id") @Positive Long id) {
+            @PathVariable(value = "id") @Positive Long id,
+            @Parameter(description = "ETag from an earlier response")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("UserController -> findById() called with ID: {}", id);
+        if (ifNoneMatch != null) {
+            // Answered from the version alone, before the user is loaded or mapped
+            String etag = service.findETag(id);
+            if (ETagUtil.noneMatchHit(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
         var response = service.findById(id);
+        return ResponseEntity.ok().eTag(ETagUtil.of(response.getUserId(), response.getVersion())).body(response);
+    }
+
+    @Operation(
+            summary = "Get archived resource by ID",
+            description = "Retrieves a resource the retention job has moved out of the main table"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Archived resource retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Archived resource not found")
+    })
+    @GetMapping("/archived/{id}")
+    public ResponseEntity<UserResponseDTO> findArchivedById(
+            @Parameter(description = "ID the resource had before it was archived")
+            @PathVariable(value = "id") @Positive Long id) {
+        log.info("UserController -> findArchivedById() called with ID: {}", id);
+        var response = archiveService.findArchivedById(id);
         return ResponseEntity.ok(response);
     }
 
@@ -99,17 +323,20 @@ public class UserController {
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Resource updated successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid resource data provided"),
-            @ApiResponse(responseCode = "404", description = "Resource not found")
+            @ApiResponse(responseCode = "404", description = "Resource not found"),
+            @ApiResponse(responseCode = "412", description = "Resource changed since the ETag in If-Match")
     })
     @PutMapping("/{id}")
     public ResponseEntity<UserResponseDTO> update(
             @Parameter(description = "ID of the resource to update")
             @PathVariable(value = "id") @Positive Long id,
             @Parameter(description = "Updated resource data")
-            @Valid @RequestBody UserRequestDTO request) {
+            @Valid @RequestBody UserRequestDTO request,
+            @Parameter(description = "ETag the update is based on")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("UserController -> update() called with ID: {}", id);
-        var response = service.update(id, request);
-        return ResponseEntity.ok(response);
+        var response = service.update(id, request, ifMatch);
+        return ResponseEntity.ok().eTag(ETagUtil.of(response.getUserId(), response.getVersion())).body(response);
     }
 
     @Operation(
@@ -119,16 +346,53 @@ public class UserController {
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Resource partially updated successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid resource data provided"),
-            @ApiResponse(responseCode = "404", description = "Resource not found")
+            @ApiResponse(responseCode = "404", description = "Resource not found"),
+            @ApiResponse(responseCode = "412", description = "Resource changed since the ETag in If-Match")
     })
     @PatchMapping("/{id}")
     public ResponseEntity<UserResponseDTO> partialUpdate(
             @Parameter(description = "ID of the resource to partially update")
             @PathVariable(value = "id") @Positive Long id,
             @Parameter(description = "Fields to update")
-            @RequestBody UserPartialUpdateRequestDTO updates) {
+            @RequestBody UserPartialUpdateRequestDTO updates,
+            @Parameter(description = "ETag the update is based on")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("UserController -> partialUpdate() called with ID: {}", id);
-        var response = service.partialUpdate(id, updates);
+        var response = service.partialUpdate(id, updates, ifMatch);
+        return ResponseEntity.ok().eTag(ETagUtil.of(response.getUserId(), response.getVersion())).body(response);
+    }
+
+    @Operation(
+            summary = "Deactivate resources in bulk",
+            description = "Soft deletes every resource selected by ids or by search/filters in one statement"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Number of resources deactivated"),
+            @ApiResponse(responseCode = "400", description = "Neither or both of ids and search/filters given, or an invalid filter")
+    })
+    @PatchMapping("/deactivate")
+    public ResponseEntity<BulkUpdateResponseDTO> deactivateAll(
+            @Parameter(description = "Ids, or search/filters as in the search endpoint")
+            @RequestBody UserStatusRequestDTO request) {
+        log.info("UserController -> deactivateAll() called");
+        var response = service.deactivateAll(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Restore resources in bulk",
+            description = "Restores every soft-deleted resource selected by ids or by search/filters in one statement"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Number of resources restored"),
+            @ApiResponse(responseCode = "400", description = "Neither or both of ids and search/filters given, or an invalid filter")
+    })
+    @PatchMapping("/activate")
+    public ResponseEntity<BulkUpdateResponseDTO> activateAll(
+            @Parameter(description = "Ids, or search/filters as in the search endpoint")
+            @RequestBody UserStatusRequestDTO request) {
+        log.info("UserController -> activateAll() called");
+        var response = service.activateAll(request);
         return ResponseEntity.ok(response);
     }
 
@@ -181,4 +445,27 @@ public class UserController {
         log.info("UserController -> search() called");
         return service.search(pageRequest);
     }
-}
\ No newline at end of file
+
+    @Operation(
+            summary = "Export search results",
+            description = "Streams every resource matching the search criteria as NDJSON or CSV"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid request parameters or export format")
+    })
+    @PostMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @Parameter(description = "Export format: ndjson (default) or csv")
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @Parameter(description = "Filter criteria; page and size are ignored")
+            @RequestBody PageRequestDTO pageRequest) {
+        log.info("UserController -> export() called with format: {}", format);
+        var response = service.export(pageRequest, format);
+        boolean csv = "csv".equalsIgnoreCase(format);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + (csv ? "csv" : "ndjson") + "\"")
+                .body(response);
+    }
+}
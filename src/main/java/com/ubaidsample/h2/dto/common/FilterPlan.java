@@ -0,0 +1,134 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.dto.common;
+
+import com.ubaidsample.h2.dto.request.FilterRequestDTO;
+import com.ubaidsample.h2.exception.InvalidFilterException;
+import com.ubaidsample.h2.util.EntityUtil;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A validated filter for one shape (field + operator + value type) with its attribute path
+ * already split and its value converter already chosen. Requests with the same shape only
+ * bind their value into a new predicate.
+ */
+public final class FilterPlan {
+
+    enum Operator { EQ, NE, LIKE, LT, LTE, GT, GTE, IN }
+
+    private final String field;
+    private final String[] pathParts;
+    private final Operator operator;
+    private final Function<Object, Object> converter;
+
+    private FilterPlan(String field, String[] pathParts, Operator operator, Function<Object, Object> converter) {
+        this.field = field;
+        this.pathParts = pathParts;
+        this.operator = operator;
+        this.converter = converter;
+    }
+
+    /**
+     * Resolves and validates the filter against the entity root, failing fast on unknown
+     * fields, unsupported operators or operators that do not apply to the field type.
+     */
+    static FilterPlan compile(Root<?> root, FilterRequestDTO filter, boolean collectionValue) {
+        String field = filter.getField();
+        if (field == null || field.isBlank()) {
+            throw new InvalidFilterException("Filter field is required");
+        }
+        if (filter.getOperator() == null) {
+            throw new InvalidFilterException("Filter operator is required for field: " + field);
+        }
+        String[] pathParts = field.split("\\.");
+        Class<?> fieldType;
+        try {
+            fieldType = resolve(root, pathParts).getJavaType();
+        } catch (IllegalArgumentException | PersistenceException ex) {
+            throw new InvalidFilterException("Unknown filter field: " + field, ex);
+        }
+        String operatorName = filter.getOperator().toLowerCase();
+        Operator operator = switch (operatorName) {
+            case "eq" -> Operator.EQ;
+            case "ne" -> Operator.NE;
+            case "like" -> Operator.LIKE;
+            case "lt" -> Operator.LT;
+            case "lte" -> Operator.LTE;
+            case "gt" -> Operator.GT;
+            case "gte" -> Operator.GTE;
+            case "in" -> Operator.IN;
+            default -> throw new InvalidFilterException("Unsupported operator: " + operatorName);
+        };
+        if (operator == Operator.LIKE && !String.class.isAssignableFrom(fieldType)) {
+            throw new InvalidFilterException("LIKE operator only applies to String fields: " + field);
+        }
+        if (isComparison(operator) && !Comparable.class.isAssignableFrom(fieldType)) {
+            throw new InvalidFilterException("Field " + field + " with operator " + operatorName + " is not Comparable");
+        }
+        Function<Object, Object> scalar = EntityUtil.converterFor(fieldType);
+        Function<Object, Object> converter = collectionValue ? value -> convertAll(scalar, (Collection<?>) value) : scalar;
+        return new FilterPlan(field, pathParts, operator, converter);
+    }
+
+    /**
+     * Binds the request value into a predicate for a new query.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Predicate toPredicate(Root<?> root, CriteriaBuilder cb, Object value) {
+        Path<?> path = resolve(root, pathParts);
+        Object typedValue;
+        try {
+            typedValue = converter.apply(value);
+        } catch (RuntimeException ex) {
+            throw new InvalidFilterException("Invalid value for field " + field + ": " + ex.getMessage(), ex);
+        }
+        if (isComparison(operator) && typedValue instanceof Collection<?>) {
+            throw new InvalidFilterException("Field " + field + " with operator " + operator.name().toLowerCase() + " requires a single value");
+        }
+        return switch (operator) {
+            case EQ -> cb.equal(path, typedValue);
+            case NE -> cb.notEqual(path, typedValue);
+            case LIKE -> cb.like((Expression<String>) path, "%" + typedValue + "%");
+            case LT -> cb.lessThan((Expression<Comparable>) path, (Comparable) typedValue);
+            case LTE -> cb.lessThanOrEqualTo((Expression<Comparable>) path, (Comparable) typedValue);
+            case GT -> cb.greaterThan((Expression<Comparable>) path, (Comparable) typedValue);
+            case GTE -> cb.greaterThanOrEqualTo((Expression<Comparable>) path, (Comparable) typedValue);
+            case IN -> path.in((typedValue instanceof Collection<?> col) ? col : List.of(typedValue));
+        };
+    }
+
+    private static Path<?> resolve(Root<?> root, String[] pathParts) {
+        Path<?> path = root;
+        for (String part : pathParts) {
+            path = path.get(part);
+        }
+        return path;
+    }
+
+    private static boolean isComparison(Operator operator) {
+        return operator == Operator.LT || operator == Operator.LTE || operator == Operator.GT || operator == Operator.GTE;
+    }
+
+    private static List<Object> convertAll(Function<Object, Object> scalar, Collection<?> values) {
+        List<Object> converted = new ArrayList<>(values.size());
+        for (Object value : values) {
+            converted.add(scalar.apply(value));
+        }
+        return converted;
+    }
+}
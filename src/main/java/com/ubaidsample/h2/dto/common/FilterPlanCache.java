@@ -0,0 +1,95 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.dto.common;
+
+import com.ubaidsample.h2.dto.request.FilterRequestDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of compiled {@link FilterPlan}s keyed by filter shape. Hit, miss and size
+ * figures are published as Micrometer metrics.
+ */
+@Component
+public class FilterPlanCache implements MeterBinder {
+
+    private final Map<String, FilterPlan> plans = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final int maxSize;
+
+    public FilterPlanCache(@Value("${app.search.filter-plan-cache.max-size:1024}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the plan for the filter's shape, compiling and caching it on first sight.
+     * Invalid filters are rejected on every request and never cached.
+     */
+    public FilterPlan getPlan(Root<?> root, FilterRequestDTO filter) {
+        boolean collectionValue = filter.getValue() instanceof Collection<?>;
+        String key = root.getJavaType().getName() + "|" + filter.getField() + "|" + filter.getOperator() + "|" + valueShape(filter.getValue());
+        FilterPlan plan = plans.get(key);
+        if (plan != null) {
+            hits.increment();
+            return plan;
+        }
+        misses.increment();
+        plan = FilterPlan.compile(root, filter, collectionValue);
+        // Once full, new shapes are compiled per request rather than evicting hot ones
+        if (plans.size() < maxSize) {
+            plans.putIfAbsent(key, plan);
+        }
+        return plan;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("search.filter.plan.cache.requests", this, FilterPlanCache::hits)
+                .tag("result", "hit")
+                .description("Filter plan cache lookups")
+                .register(registry);
+        FunctionCounter.builder("search.filter.plan.cache.requests", this, FilterPlanCache::misses)
+                .tag("result", "miss")
+                .description("Filter plan cache lookups")
+                .register(registry);
+        Gauge.builder("search.filter.plan.cache.size", this, FilterPlanCache::size)
+                .description("Compiled filter plans currently cached")
+                .register(registry);
+    }
+
+    private String valueShape(Object value) {
+        if (value instanceof Collection<?> col) {
+            Object first = col.stream().filter(v -> v != null).findFirst().orElse(null);
+            return "list:" + (first == null ? "null" : first.getClass().getName());
+        }
+        return value == null ? "null" : value.getClass().getName();
+    }
+}
@@ -26,4 +26,7 @@ public class PageRequestDTO {
     private String sortDir = "asc";
     private String search;
     private List<FilterRequestDTO> filters;
+    private String countMode = "exact"; // exact, cached (short-lived cached total), none (slice without total)
+    private String cursor; // continuation token from the previous page, switches to keyset pagination ("" for the first page)
+    private boolean includeDeleted; // also return soft-deleted users, which are hidden by default
 }
\ No newline at end of file
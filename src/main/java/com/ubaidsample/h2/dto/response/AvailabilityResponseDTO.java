@@ -0,0 +1,33 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityResponseDTO {
+
+    @JsonProperty("user_name")
+    private String userName;
+
+    @JsonProperty("user_name_available")
+    private Boolean userNameAvailable; // null when no user name was asked for
+
+    @JsonProperty("email")
+    private String email;
+
+    @JsonProperty("email_available")
+    private Boolean emailAvailable; // null when no email was asked for
+}
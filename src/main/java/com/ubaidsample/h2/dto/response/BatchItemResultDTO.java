@@ -0,0 +1,29 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResultDTO {
+
+    private int index; // position of the item in the request
+    private String status; // CREATED, EXISTING, CONFLICT, INVALID
+    private Long userId; // null for CONFLICT and INVALID
+    private String idempotencyKey;
+    private List<String> errors; // why the item was not created, empty otherwise
+    private UserResponseDTO user; // resulting row for CREATED and EXISTING upserts, null otherwise
+}
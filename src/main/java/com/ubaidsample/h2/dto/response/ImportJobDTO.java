@@ -0,0 +1,38 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobDTO {
+
+    private String jobId;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+    private String fileName;
+    private String format;
+    private long rowsRead;
+    private long created;
+    private long existing;
+    private long conflict;
+    private long invalid;
+    private List<RejectedRowDTO> rejectedRows; // first rejected rows, up to the configured report size
+    private boolean rejectedRowsTruncated;
+    private String error; // why the job failed, null otherwise
+    private LocalDateTime submittedAt;
+    private LocalDateTime finishedAt;
+}
@@ -23,7 +23,9 @@ public class PageResponseDTO<T> {
     private List<T> content;
     private int page;
     private int size;
-    private long totalElements;
-    private int totalPages;
+    private long totalElements; // -1 when omitted
+    private String totalElementsType; // exact, cached, omitted
+    private int totalPages; // -1 when omitted
     private boolean last;
+    private String nextCursor; // token for the next page in keyset pagination, null on the last page
 }
\ No newline at end of file
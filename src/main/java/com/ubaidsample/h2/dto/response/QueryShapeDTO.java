@@ -0,0 +1,37 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryShapeDTO {
+
+    private String shape; // entity, filter fields and operators, search, sort and paging mode; never values
+    private long executions;
+    private long slowExecutions; // executions at or above app.query-advisor.slow-threshold
+    private double totalMs;
+    private double meanMs;
+    private double p50Ms;
+    private double p95Ms;
+    private double p99Ms;
+    private double maxMs;
+    private List<String> sql; // statements the shape ran, as Hibernate generated them
+    private List<String> plan; // H2 EXPLAIN of each statement, null until the shape has run slow
+    private Boolean tableScan; // null until explained
+    private String suggestedIndex; // null when the plan needs no index or none would help
+    private boolean indexApplied;
+}
@@ -0,0 +1,24 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamResponseDTO {
+
+    private StreamingResponseBody body; // written after the response headers are sent
+    private boolean truncated; // more rows matched than the stream will write
+}
@@ -43,6 +43,9 @@ public class UserResponseDTO {
     @JsonProperty("postal_code")
     private Integer postalCode;
 
+    @JsonProperty("version")
+    private Long version;
+
     @JsonProperty("auditHistoryDTO")
     private AuditHistoryDTO auditHistoryDTO;
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WriteStatusDTO {
+
+    private Long reservedId; // id handed out on submit, also the key of this status
+    private String status; // QUEUED, CREATED, EXISTING, CONFLICT, INVALID, FAILED
+    private Long userId; // stored id: reservedId when CREATED, the earlier user's id when EXISTING
+    private String idempotencyKey;
+    private List<String> errors; // why the user was not created, empty otherwise
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+}
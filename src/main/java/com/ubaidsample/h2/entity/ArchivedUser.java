@@ -0,0 +1,86 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.entity;
+
+import com.ubaidsample.h2.dto.common.AuditHistoryDTO;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Comment;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Cold copy of a user moved out of the users table by the retention job. Written only with
+ * plain JDBC (INSERT ... SELECT) and read by id; no unique constraints, so archived names
+ * and emails can be reused.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Comment("Users moved out of the users table by the retention job")
+@Table(name = "users_archive")
+public class ArchivedUser implements Serializable {
+
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(name = "user_id", nullable = false, updatable = false)
+	@Comment("Id the user had in the users table")
+	private Long userId;
+
+	@Column(name = "idempotency_key", nullable = false, updatable = false)
+	@Comment("Idempotency key the user was created with")
+	private String idempotencyKey;
+
+	@Column(name = "user_name", nullable = false, length = 50)
+	@Comment("User name")
+	private String userName;
+
+	@Column(name = "email", nullable = false, length = 50)
+	@Comment("User email")
+	private String email;
+
+	@Column(name = "password", nullable = false, length = 255)
+	@Comment("User password")
+	private String password;
+
+	@Column(name = "date_of_birth", nullable = false)
+	@Comment("User dateOfBirth")
+	private LocalDate dateOfBirth;
+
+	@Column(name = "date_of_leaving", nullable = false)
+	@Comment("User dateOfLeaving")
+	private LocalDate dateOfLeaving;
+
+	@Column(name = "postal_code", nullable = false)
+	@Comment("User postalCode")
+	private Integer postalCode;
+
+	@Column(name = "version", nullable = false)
+	@Comment("Last row version in the users table")
+	private Long version;
+
+	@Embedded
+	@AttributeOverrides({
+			@AttributeOverride(name = "createdBy", column = @Column(name = "created_by")),
+			@AttributeOverride(name = "createdDate", column = @Column(name = "created_date")),
+			@AttributeOverride(name = "updatedBy", column = @Column(name = "updated_by")),
+			@AttributeOverride(name = "updatedDate", column = @Column(name = "updated_date")),
+	})
+	@Comment("Auditing related fields")
+	private AuditHistoryDTO auditHistoryDTO = new AuditHistoryDTO();
+
+	@Column(name = "archived_date", nullable = false)
+	@Comment("When the retention job moved the user here")
+	private LocalDateTime archivedDate;
+}
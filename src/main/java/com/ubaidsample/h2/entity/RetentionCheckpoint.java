@@ -0,0 +1,49 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Comment;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Comment("Progress of the retention job, committed with every chunk so a restart resumes from it")
+@Table(name = "retention_checkpoint")
+public class RetentionCheckpoint implements Serializable {
+
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(name = "job_name", nullable = false, length = 50)
+	@Comment("Name of the retention job")
+	private String jobName;
+
+	@Column(name = "last_user_id", nullable = false)
+	@Comment("Highest user id scanned by the running pass, 0 when no pass is in progress")
+	private Long lastUserId;
+
+	@Column(name = "archived_count", nullable = false)
+	@Comment("Users archived by the running (or last finished) pass")
+	private Long archivedCount;
+
+	@Column(name = "started_date")
+	@Comment("When the running (or last finished) pass started")
+	private LocalDateTime startedDate;
+
+	@Column(name = "completed_date")
+	@Comment("When the last pass finished, null while one is in progress")
+	private LocalDateTime completedDate;
+}
@@ -0,0 +1,46 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Comment;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(SearchTokenId.class)
+@Comment("Trigram index over the searchable fields of other entities")
+@Table(name = "search_tokens",
+        indexes = {
+                @Index(name = "idx_search_token_entity", columnList = "entity_type, entity_id")
+        })
+public class SearchToken implements Serializable {
+
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(name = "entity_type", nullable = false, length = 50)
+	@Comment("Simple name of the indexed entity")
+	private String entityType;
+
+	@Id
+	@Column(name = "token", nullable = false, length = 12)
+	@Comment("Lower-cased trigram of a searchable field value")
+	private String token;
+
+	@Id
+	@Column(name = "entity_id", nullable = false)
+	@Comment("Primary key of the indexed row")
+	private Long entityId;
+}
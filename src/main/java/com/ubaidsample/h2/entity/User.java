@@ -7,10 +7,18 @@
 
 package com.ubaidsample.h2.entity;
 
+import com.ubaidsample.h2.annotation.Searchable;
 import com.ubaidsample.h2.dto.common.AuditHistoryDTO;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.Comment;
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.io.Serial;
@@ -19,35 +27,59 @@ import java.time.LocalDate;
 
 @Data
 @Entity
+@Cacheable
+// Point lookups by id and by idempotency key are served from the second-level cache (regions in application.conf)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-natural-id")
 @NoArgsConstructor
 @AllArgsConstructor
 @Comment("Stores user information")
 @EntityListeners(AuditingEntityListener.class)
+// Every query sees live users only; loads by id or natural id still find soft-deleted ones (see SoftDeleteUtil to opt out)
+@FilterDef(name = User.LIVE_FILTER, defaultCondition = "is_deleted = false", autoEnabled = true)
+@Filter(name = User.LIVE_FILTER)
 @Table(name = "users",
         uniqueConstraints = {
-                @UniqueConstraint(name = "uk_user_email", columnNames = "email"),
-                @UniqueConstraint(name = "uk_user_username", columnNames = "user_name"),
-				@UniqueConstraint(name = "uk_user_idempotency_key", columnNames = "idempotency_key")
+                @UniqueConstraint(name = User.UK_EMAIL, columnNames = "email"),
+                @UniqueConstraint(name = User.UK_USERNAME, columnNames = "user_name"),
+				@UniqueConstraint(name = User.UK_IDEMPOTENCY_KEY, columnNames = "idempotency_key")
+        },
+        // Lead with is_deleted so live-row lookups skip the soft-deleted part of each index
+        indexes = {
+                @Index(name = "idx_user_deleted_email", columnList = "is_deleted, email"),
+                @Index(name = "idx_user_deleted_user_name", columnList = "is_deleted, user_name"),
+                @Index(name = "idx_user_deleted_postal_code", columnList = "is_deleted, postal_code"),
+                @Index(name = "idx_user_deleted_date_of_leaving", columnList = "is_deleted, date_of_leaving")
         })
 public class User implements Serializable {
 	
 	@Serial
 	private static final long serialVersionUID = 1L;
 
+	public static final String UK_EMAIL = "uk_user_email";
+	public static final String UK_USERNAME = "uk_user_username";
+	public static final String UK_IDEMPOTENCY_KEY = "uk_user_idempotency_key";
+	public static final String LIVE_FILTER = "liveUsers";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence (not IDENTITY) so inserts can be JDBC-batched; ids are handed out in blocks of 50 (pooled-lo)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     @Column(name= "user_id", nullable = false, updatable = false)
 	@Comment("Unique identifier for each user")
     private Long userId;
 
+	@NaturalId
 	@Column(name= "idempotency_key", nullable = false, updatable = false)
 	@Comment("Unique idempotency key for each user")
 	private String idempotencyKey;
 
+    @Searchable
     @Column(name = "user_name", nullable = false, length = 50)
 	@Comment("User name")
     private String userName;
 
+    @Searchable
     @Column(name = "email", nullable = false, length = 50)
 	@Comment("User email")
     private String email;
@@ -68,6 +100,12 @@ public class User implements Serializable {
 	@Comment("User postalCode")
 	private Integer postalCode;
 
+	@Version
+	@ColumnDefault("0")
+	@Column(name = "version", nullable = false)
+	@Comment("Row version, bumped on every update; also the ETag of the user")
+	private Long version;
+
 	@Embedded
 	@AttributeOverrides({
 			@AttributeOverride(name = "createdBy", column = @Column(name = "created_by")),
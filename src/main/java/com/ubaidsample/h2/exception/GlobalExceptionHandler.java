@@ -8,6 +8,8 @@
 package com.ubaidsample.h2.exception;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -90,6 +92,53 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(BatchLimitExceededException.class)
+    public ResponseEntity<ErrorDetails> batchLimitExceededException(BatchLimitExceededException ex, HttpServletRequest request) {
+        var error = new ErrorDetails(
+                ex.getMessage(),
+                HttpStatus.PAYLOAD_TOO_LARGE.value(),
+                new Date(),
+                request.getRequestURI()
+        );
+        return new ResponseEntity<>(error, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorDetails> tooManyRequestsException(TooManyRequestsException ex, HttpServletRequest request) {
+        var error = new ErrorDetails(
+                ex.getMessage(),
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                new Date(),
+                request.getRequestURI()
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(error);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorDetails> preconditionFailedException(PreconditionFailedException ex, HttpServletRequest request) {
+        var error = new ErrorDetails(
+                ex.getMessage(),
+                HttpStatus.PRECONDITION_FAILED.value(),
+                new Date(),
+                request.getRequestURI()
+        );
+        return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    // A versioned update lost the race to a concurrent one between read and flush
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorDetails> optimisticLockingFailureException(OptimisticLockingFailureException ex, HttpServletRequest request) {
+        var error = new ErrorDetails(
+                "The resource was modified concurrently, reload it and retry",
+                HttpStatus.PRECONDITION_FAILED.value(),
+                new Date(),
+                request.getRequestURI()
+        );
+        return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorDetails> globalExceptionHandler(Exception ex, HttpServletRequest request) {
         var error = new ErrorDetails(
@@ -0,0 +1,20 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.repository;
+
+import com.ubaidsample.h2.entity.User;
+
+import java.util.Optional;
+
+public interface UserNaturalIdRepository {
+
+    /**
+     * Loads by the idempotency key natural id, resolved through the natural-id cache.
+     */
+    Optional<User> findByIdempotencyKey(String key);
+}
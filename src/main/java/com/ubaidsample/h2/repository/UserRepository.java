@@ -8,29 +8,65 @@
 package com.ubaidsample.h2.repository;
 
 import com.ubaidsample.h2.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long>,
-        JpaSpecificationExecutor<User> {
+        JpaSpecificationExecutor<User>, UserNaturalIdRepository {
 
-    Optional<User> findByIdempotencyKey(String key);
+    // Uniqueness lookups: the constraints cover soft-deleted users, so callers run these through SoftDeleteUtil.includeDeleted
 
-    List<User> findAllByAuditHistoryDTO_DeletedFalse();
+    @Query("select u.idempotencyKey, u.userId from User u where u.idempotencyKey in :keys")
+    List<Object[]> findIdsByIdempotencyKeyIn(@Param("keys") Collection<String> keys);
 
-    Optional<User> findByEmailAndAuditHistoryDTO_DeletedFalse(String email);
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
 
-    Optional<User> findByUserNameAndAuditHistoryDTO_DeletedFalse(String userName);
+    @Query("select u.userName from User u where u.userName in :userNames")
+    List<String> findExistingUserNames(@Param("userNames") Collection<String> userNames);
 
-    Optional<User> findByUserIdAndAuditHistoryDTO_DeletedFalse(Long userId);
+    // Availability confirmations repeat for popular names; inserts through JDBC evict the query cache (CacheUtil)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    boolean existsByUserName(String userName);
 
-    List<User> findByDateOfLeavingAndAuditHistoryDTO_DeletedFalse(LocalDate dateOfLeaving);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    boolean existsByEmail(String email);
 
-    List<User> findByPostalCodeAndAuditHistoryDTO_DeletedFalse(Integer postalCode);
+    List<User> findByIdempotencyKeyIn(Collection<String> keys);
+
+    @Query("select u.idempotencyKey, u.email, u.userName from User u"
+            + " where u.idempotencyKey in :keys or u.email in :emails or u.userName in :userNames")
+    List<Object[]> findUniqueColumns(@Param("keys") Collection<String> keys, @Param("emails") Collection<String> emails,
+                                     @Param("userNames") Collection<String> userNames);
+
+    // Queries below see live users only through User's soft-delete filter
+
+    List<User> findByUserIdGreaterThanOrderByUserIdAsc(Long userId, Limit limit);
+
+    // Probe past a cap: with PageRequest.of(n, 1) the result holds the (n + 1)-th user id, if there is one
+    @Query("select u.userId from User u order by u.userId")
+    List<Long> findUserIds(Pageable pageable);
+
+    // Validator for conditional GETs without loading or mapping the user
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select u.version from User u where u.userId = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    List<User> findByDateOfLeaving(LocalDate dateOfLeaving);
+
+    List<User> findByPostalCode(Integer postalCode);
 }
\ No newline at end of file
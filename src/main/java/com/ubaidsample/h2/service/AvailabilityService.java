@@ -0,0 +1,126 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import com.ubaidsample.h2.dto.response.AvailabilityResponseDTO;
+import com.ubaidsample.h2.exception.MissingInputException;
+import com.ubaidsample.h2.repository.UserRepository;
+import com.ubaidsample.h2.util.BloomFilter;
+import com.ubaidsample.h2.util.SoftDeleteUtil;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Answers whether a user name or email is still free. Bloom filters of every stored value
+ * (soft-deleted users included, as the unique constraints cover them) rule out most names
+ * without a connection; only a probable hit is confirmed against the database. Values are
+ * only ever added, so a freed name stays a probable hit until the next rebuild.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AvailabilityService {
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM users";
+    private static final String VALUES_SQL = "SELECT user_name, email FROM users";
+
+    private final UserRepository repository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final EntityManager entityManager;
+
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.user.availability.expected-insertions:100000}")
+    private long expectedInsertions;
+
+    @Value("${app.user.availability.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // Null until the first rebuild finishes; every check goes to the database until then
+    private volatile Filters filters;
+
+    // Set while a rebuild is reading the table so that concurrent writes reach the new filters too
+    private volatile Filters building;
+
+    private record Filters(BloomFilter userNames, BloomFilter emails) {}
+
+    public AvailabilityResponseDTO check(String userName, String email) {
+        log.info("AvailabilityService -> check() called");
+        if (userName == null && email == null) {
+            throw new MissingInputException("A user name or an email is required");
+        }
+        Boolean userNameAvailable = userName == null ? null
+                : isAvailable(userName, Filters::userNames, repository::existsByUserName);
+        Boolean emailAvailable = email == null ? null
+                : isAvailable(email, Filters::emails, repository::existsByEmail);
+        return new AvailabilityResponseDTO(userName, userNameAvailable, email, emailAvailable);
+    }
+
+    /**
+     * Records values that are now taken. Called before the writing transaction commits: a
+     * rollback only leaves a false positive behind, which the database check corrects.
+     */
+    public void register(String userName, String email) {
+        for (Filters target : new Filters[]{filters, building}) {
+            if (target != null) {
+                if (userName != null) {
+                    target.userNames().add(userName);
+                }
+                if (email != null) {
+                    target.emails().add(email);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds both filters from the users table, sized for twice the current row count.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Long rows = jdbcTemplate.queryForObject(COUNT_SQL, Long.class);
+        long capacity = Math.max(expectedInsertions, 2 * (rows == null ? 0 : rows));
+        Filters fresh = new Filters(new BloomFilter(capacity, falsePositiveRate), new BloomFilter(capacity, falsePositiveRate));
+        building = fresh;
+        try {
+            jdbcTemplate.query(VALUES_SQL, rs -> {
+                fresh.userNames().add(rs.getString(1));
+                fresh.emails().add(rs.getString(2));
+            });
+            filters = fresh;
+        } finally {
+            building = null;
+        }
+        log.info("AvailabilityService -> filters rebuilt for {} users, capacity {}", rows, capacity);
+    }
+
+    private boolean isAvailable(String value, Function<Filters, BloomFilter> filter, Predicate<String> exists) {
+        Filters current = filters;
+        if (current != null && !filter.apply(current).mightContain(value)) {
+            return true;
+        }
+        // Only a probable hit takes a connection, in a transaction of its own for the filter opt-out
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return !Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                SoftDeleteUtil.includeDeleted(entityManager, () -> exists.test(value))));
+    }
+}
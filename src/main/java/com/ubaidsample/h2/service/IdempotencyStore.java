@@ -0,0 +1,141 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import com.ubaidsample.h2.dto.response.UserResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Responses of recently completed creates keyed by idempotency key, so a replay is answered
+ * without a database round trip. Entries expire after app.user.idempotency.ttl and the oldest
+ * are dropped beyond app.user.idempotency.max-size. Only one create per key runs at a time in
+ * this instance; concurrent requests with the same key wait for its result.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    private final Map<String, Entry> completed = new ConcurrentHashMap<>();
+    // Every entry has the same TTL, so insertion order is also expiry order
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final Map<String, CompletableFuture<UserResponseDTO>> inFlight = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxSize;
+    private final long waitMillis;
+
+    public IdempotencyStore(@Value("${app.user.idempotency.ttl:10m}") Duration ttl,
+                            @Value("${app.user.idempotency.max-size:10000}") int maxSize,
+                            @Value("${app.user.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.waitMillis = waitTimeout.toMillis();
+    }
+
+    private record Entry(String key, UserResponseDTO response, long expiresAt) {}
+
+    /**
+     * Returns the cached response for the key, waits for an in-flight create of the same key,
+     * or runs the create and caches its response. A failed create is not cached; requests that
+     * were waiting on it run their own attempt.
+     */
+    public UserResponseDTO execute(String key, Supplier<UserResponseDTO> create) {
+        while (true) {
+            UserResponseDTO cached = get(key);
+            if (cached != null) {
+                log.info("Returning cached response for idempotencyKey={}", key);
+                return cached;
+            }
+            CompletableFuture<UserResponseDTO> latch = new CompletableFuture<>();
+            CompletableFuture<UserResponseDTO> running = inFlight.putIfAbsent(key, latch);
+            if (running == null) {
+                return runFirst(key, create, latch);
+            }
+            UserResponseDTO response = await(key, running);
+            if (response != null) {
+                return response;
+            }
+            if (!running.isDone()) {
+                // Gave up waiting: go to the database, whose unique key still settles the race
+                return create.get();
+            }
+        }
+    }
+
+    /**
+     * Caches a response produced outside {@link #execute}, e.g. by the write-behind writer.
+     */
+    public void remember(String key, UserResponseDTO response) {
+        put(key, response);
+    }
+
+    private UserResponseDTO runFirst(String key, Supplier<UserResponseDTO> create, CompletableFuture<UserResponseDTO> latch) {
+        try {
+            UserResponseDTO response = create.get();
+            put(key, response);
+            latch.complete(response);
+            return response;
+        } catch (RuntimeException | Error ex) {
+            latch.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, latch);
+        }
+    }
+
+    private UserResponseDTO await(String key, CompletableFuture<UserResponseDTO> running) {
+        try {
+            log.info("Waiting for in-flight create with idempotencyKey={}", key);
+            return running.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for idempotencyKey=" + key, ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            return null;
+        }
+    }
+
+    private UserResponseDTO get(String key) {
+        Entry entry = completed.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() - System.nanoTime() <= 0) {
+            completed.remove(key, entry);
+            return null;
+        }
+        return entry.response();
+    }
+
+    private void put(String key, UserResponseDTO response) {
+        long now = System.nanoTime();
+        Entry entry = new Entry(key, response, now + ttlNanos);
+        completed.put(key, entry);
+        insertionOrder.add(entry);
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null
+                && (completed.size() > maxSize || oldest.expiresAt() - now <= 0)) {
+            Entry evicted = insertionOrder.poll();
+            if (evicted != null) {
+                completed.remove(evicted.key(), evicted);
+            }
+        }
+    }
+}
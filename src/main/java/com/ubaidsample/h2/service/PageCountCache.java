@@ -0,0 +1,90 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import com.ubaidsample.h2.dto.request.FilterRequestDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Short-lived cache of COUNT(*) results keyed by entity and normalized filter set, so that
+ * paging through the same search does not recount the same predicate on every page.
+ */
+@Component
+public class PageCountCache {
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxSize;
+
+    public PageCountCache(@Value("${app.pagination.count-cache.ttl:30s}") Duration ttl,
+                          @Value("${app.pagination.count-cache.max-size:1000}") int maxSize) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+    }
+
+    public record CachedCount(long total, long expiresAt, boolean hit) {}
+
+    /**
+     * Returns the cached total for the given search, or runs the count and caches it.
+     */
+    public CachedCount getOrCount(Class<?> entityClass, String search, List<FilterRequestDTO> filters, boolean includeDeleted,
+                                  LongSupplier counter) {
+        String key = key(entityClass, search, filters, includeDeleted);
+        long now = System.nanoTime();
+        CachedCount cached = counts.get(key);
+        if (cached != null && cached.expiresAt() - now > 0) {
+            return new CachedCount(cached.total(), cached.expiresAt(), true);
+        }
+        CachedCount fresh = new CachedCount(counter.getAsLong(), now + ttlNanos, false);
+        if (counts.size() >= maxSize) {
+            counts.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+        }
+        // Still full with live entries: serve the fresh count without caching it
+        if (counts.size() < maxSize) {
+            counts.put(key, fresh);
+        }
+        return fresh;
+    }
+
+    /**
+     * Drops every cached total of the given entity, called after writes that may change counts.
+     */
+    public void evict(Class<?> entityClass) {
+        String prefix = entityClass.getName() + "|";
+        counts.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private String key(Class<?> entityClass, String search, List<FilterRequestDTO> filters, boolean includeDeleted) {
+        // Filters are AND-ed, so their order does not change the count
+        String normalizedFilters = filters == null ? "" : filters.stream()
+                .map(f -> f.getField() + ":" + (f.getOperator() == null ? "" : f.getOperator().toLowerCase()) + ":" + normalizeValue(f.getValue()))
+                .sorted()
+                .collect(Collectors.joining(","));
+        String normalizedSearch = search == null || search.isBlank() ? "" : search;
+        return entityClass.getName() + "|" + normalizedSearch + "|" + normalizedFilters + "|" + (includeDeleted ? "all" : "live");
+    }
+
+    private String normalizeValue(Object value) {
+        if (value instanceof Collection<?> col) {
+            return col.stream()
+                    .map(String::valueOf)
+                    .sorted()
+                    .collect(Collectors.joining(";", "[", "]"));
+        }
+        return String.valueOf(value);
+    }
+}
@@ -7,68 +7,284 @@
 
 package com.ubaidsample.h2.service;
 
+import com.ubaidsample.h2.dto.common.FilterPlanCache;
 import com.ubaidsample.h2.dto.common.GenericSpecification;
 import com.ubaidsample.h2.dto.request.PageRequestDTO;
 import com.ubaidsample.h2.dto.response.PageResponseDTO;
+import com.ubaidsample.h2.exception.InvalidFilterException;
+import com.ubaidsample.h2.util.CursorUtil;
 import com.ubaidsample.h2.util.EntityUtil;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.*;
+import com.ubaidsample.h2.util.RequestTiming;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 
+import java.time.DateTimeException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class PaginationService<T, R> {
 
     private final JpaSpecificationExecutor<T> specRepository;
-    private final ModelMapper modelMapper;
-    private final Class<R> responseClass;
+    private final EntityManager entityManager;
+    private final PageCountCache countCache;
+    private final FilterPlanCache planCache;
     private final Class<T> entityClass;
     private final String idFieldName;
+    private final ResponseProjection<R> projection;
 
-    public PaginationService(JpaSpecificationExecutor<T> specRepository, ModelMapper modelMapper,
+    public PaginationService(JpaSpecificationExecutor<T> specRepository, EntityManager entityManager,
+                             PageCountCache countCache, FilterPlanCache planCache,
                              Class<T> entityClass, Class<R> responseClass) {
         this.specRepository = specRepository;
-        this.modelMapper = modelMapper;
+        this.entityManager = entityManager;
+        this.countCache = countCache;
+        this.planCache = planCache;
         this.entityClass = entityClass;
-        this.responseClass = responseClass;
         this.idFieldName = EntityUtil.getIdFieldName(entityClass);
+        this.projection = ResponseProjection.of(entityClass, responseClass);
     }
 
     public PageResponseDTO<R> getPaginatedData(PageRequestDTO pageRequest) {
 
-        // Determine correct sort field
-        String sortField = pageRequest.getSortBy();
-        // If sortBy is missing or invalid → use auto-detected primary key
-        if (sortField == null || sortField.isBlank()) {
-            sortField = idFieldName;
+        String sortField = resolveSortField(pageRequest.getSortBy());
+        boolean ascending = pageRequest.getSortDir().equalsIgnoreCase("asc");
+        String countMode = pageRequest.getCountMode() == null ? "exact" : pageRequest.getCountMode().toLowerCase();
+        Specification<T> spec = new GenericSpecification<>(pageRequest.getSearch(), pageRequest.getFilters(), planCache);
+        // A cursor (even an empty one) switches to keyset pagination
+        if (pageRequest.getCursor() != null) {
+            return getKeysetData(pageRequest, spec, sortField, ascending, countMode);
         }
-        // Validate: check that the field really exists in the entity
-        try {
-            entityClass.getDeclaredField(sortField);
-        } catch (NoSuchFieldException e) {
-            sortField = idFieldName;
-        }
-        Sort sort = pageRequest.getSortDir().equalsIgnoreCase("asc")
+        Sort sort = ascending
                 ? Sort.by(sortField).ascending()
                 : Sort.by(sortField).descending();
         Pageable pageable = PageRequest.of(pageRequest.getPage(), pageRequest.getSize(), sort);
-        Specification<T> spec = new GenericSpecification<>(pageRequest.getSearch(), pageRequest.getFilters());
-        Page<T> entityPage = specRepository.findAll(spec, pageable);
-        // Map Entity → ResponseDTO
-        List<R> mappedList = entityPage.getContent()
-                .stream()
-                .map(entity -> modelMapper.map(entity, responseClass))
-                .toList();
-        return new PageResponseDTO<>(
-                mappedList,
-                entityPage.getNumber(),
-                entityPage.getSize(),
-                entityPage.getTotalElements(),
-                entityPage.getTotalPages(),
-                entityPage.isLast()
-        );
+        switch (countMode) {
+            case "exact" -> {
+                List<R> content = toResponses(findRows(spec, sort, (int) pageable.getOffset(), pageable.getPageSize()));
+                // Skips the COUNT query when the page itself reveals the total
+                Page<R> page = PageableExecutionUtils.getPage(content, pageable, () -> specRepository.count(spec));
+                return new PageResponseDTO<>(
+                        page.getContent(),
+                        page.getNumber(),
+                        page.getSize(),
+                        page.getTotalElements(),
+                        "exact",
+                        page.getTotalPages(),
+                        page.isLast(),
+                        null
+                );
+            }
+            case "none" -> {
+                Slice<R> slice = findSlice(spec, pageable);
+                return new PageResponseDTO<>(
+                        slice.getContent(),
+                        slice.getNumber(),
+                        slice.getSize(),
+                        -1,
+                        "omitted",
+                        -1,
+                        !slice.hasNext(),
+                        null
+                );
+            }
+            case "cached" -> {
+                Slice<R> slice = findSlice(spec, pageable);
+                PageCountCache.CachedCount count = countCache.getOrCount(entityClass, pageRequest.getSearch(),
+                        pageRequest.getFilters(), pageRequest.isIncludeDeleted(), () -> specRepository.count(spec));
+                return new PageResponseDTO<>(
+                        slice.getContent(),
+                        slice.getNumber(),
+                        slice.getSize(),
+                        count.total(),
+                        count.hit() ? "cached" : "exact",
+                        totalPages(count.total(), slice.getSize()),
+                        !slice.hasNext(),
+                        null
+                );
+            }
+            default -> throw new InvalidFilterException("Unsupported count mode: " + countMode);
+        }
+    }
+
+    /**
+     * Builds the query behind {@link #streamData} from the search criteria. Call it before a
+     * response is committed so an invalid filter or search is still reported as 400; it needs
+     * neither a transaction nor a connection.
+     */
+    public CriteriaQuery<Tuple> prepareStream(PageRequestDTO pageRequest) {
+        String sortField = resolveSortField(pageRequest.getSortBy());
+        Sort.Direction direction = pageRequest.getSortDir().equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Specification<T> spec = new GenericSpecification<>(pageRequest.getSearch(), pageRequest.getFilters(), planCache);
+        return createCriteria(spec, Sort.by(direction, sortField));
+    }
+
+    /**
+     * Streams every row of a prepared query, in its order, through a forward-only cursor with
+     * the given JDBC fetch size. Rows are handed to the consumer one at a time and never
+     * retained, so memory stays flat regardless of the result size. Must be called inside a
+     * transaction that stays open while the stream is consumed.
+     */
+    public void streamData(CriteriaQuery<Tuple> query, int fetchSize, Consumer<R> consumer) {
+        try (Stream<Tuple> rows = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            rows.map(projection::toResponse).forEach(consumer);
+        }
+    }
+
+    private String resolveSortField(String sortBy) {
+        // If sortBy is missing or the generic "id" (the request default) → use auto-detected primary key
+        if (sortBy == null || sortBy.isBlank() || "id".equals(sortBy)) {
+            return idFieldName;
+        }
+        // Sort keys are selected into the tuple, so only attributes the response already exposes are allowed
+        if (!sortBy.equals(idFieldName) && !projection.includes(sortBy)) {
+            throw new InvalidFilterException("Unsupported sort field: " + sortBy);
+        }
+        return sortBy;
+    }
+
+    private TypedQuery<Tuple> createQuery(Specification<T> spec, Sort sort) {
+        return entityManager.createQuery(createCriteria(spec, sort));
+    }
+
+    /**
+     * Selects only the response columns (plus sort keys and the primary key) as read-only
+     * tuples, so no entity is loaded, dirty-checked or flushed.
+     */
+    private CriteriaQuery<Tuple> createCriteria(Specification<T> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityClass);
+        List<String> extraAttributes = new ArrayList<>();
+        extraAttributes.add(idFieldName);
+        sort.forEach(order -> extraAttributes.add(order.getProperty()));
+        query.multiselect(projection.selections(root, extraAttributes));
+        query.where(spec.toPredicate(root, query, cb));
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return query;
+    }
+
+    private List<Tuple> findRows(Specification<T> spec, Sort sort, int offset, int limit) {
+        return createQuery(spec, sort)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Fetches size + 1 rows at the page offset, so the next page can be detected without a COUNT query.
+     */
+    private Slice<R> findSlice(Specification<T> spec, Pageable pageable) {
+        List<Tuple> rows = findRows(spec, pageable.getSort(), (int) pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(toResponses(hasNext ? rows.subList(0, pageable.getPageSize()) : rows), pageable, hasNext);
+    }
+
+    /**
+     * Seeks past the row encoded in the cursor instead of skipping OFFSET rows, ordering by
+     * the sort field with the primary key as a tiebreaker. Fetches one extra row to detect
+     * the next page and only reports a total when a cached count was requested. Nullable sort
+     * fields are rejected up front, since a null key can neither be encoded nor sought past.
+     */
+    private PageResponseDTO<R> getKeysetData(PageRequestDTO pageRequest, Specification<T> spec,
+                                             String sortField, boolean ascending, String countMode) {
+        if (!EntityUtil.isNonNullable(entityClass, sortField)) {
+            throw new InvalidFilterException("Keyset pagination requires a non-null sort field: " + sortField);
+        }
+        String sortDir = ascending ? "asc" : "desc";
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        int size = pageRequest.getSize();
+        Specification<T> seekSpec = spec;
+        if (!pageRequest.getCursor().isBlank()) {
+            CursorUtil.Cursor cursor = CursorUtil.decode(pageRequest.getCursor());
+            if (!cursor.sortField().equals(sortField) || !cursor.sortDir().equals(sortDir)) {
+                throw new InvalidFilterException("Pagination cursor was issued for a different sort: " + cursor.sortField() + " " + cursor.sortDir());
+            }
+            Specification<T> afterCursor = (root, query, cb) -> keysetPredicate(cb, root, sortField, ascending, cursor);
+            seekSpec = spec.and(afterCursor);
+        }
+        Sort sort = sortField.equals(idFieldName)
+                ? Sort.by(direction, idFieldName)
+                : Sort.by(direction, sortField).and(Sort.by(direction, idFieldName));
+        List<Tuple> rows = findRows(seekSpec, sort, 0, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<Tuple> pageRows = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            Tuple last = pageRows.get(pageRows.size() - 1);
+            nextCursor = CursorUtil.encode(sortField, sortDir, last.get(sortField), last.get(idFieldName));
+        }
+        // Keyset exists to avoid COUNT(*) on every page, so only a cached total is ever reported
+        if ("cached".equals(countMode)) {
+            PageCountCache.CachedCount count = countCache.getOrCount(entityClass, pageRequest.getSearch(),
+                    pageRequest.getFilters(), pageRequest.isIncludeDeleted(), () -> specRepository.count(spec));
+            return new PageResponseDTO<>(toResponses(pageRows), 0, size, count.total(), count.hit() ? "cached" : "exact",
+                    totalPages(count.total(), size), !hasNext, nextCursor);
+        }
+        return new PageResponseDTO<>(toResponses(pageRows), 0, size, -1, "omitted", -1, !hasNext, nextCursor);
+    }
+
+    private List<R> toResponses(List<Tuple> rows) {
+        // Map Tuple → ResponseDTO
+        return RequestTiming.mapping(() -> rows.stream()
+                .map(projection::toResponse)
+                .toList());
+    }
+
+    private int totalPages(long total, int size) {
+        return size == 0 ? 1 : (int) Math.ceil((double) total / (double) size);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate keysetPredicate(CriteriaBuilder cb, Root<T> root, String sortField, boolean ascending,
+                                      CursorUtil.Cursor cursor) {
+        Path<Comparable> idPath = root.get(idFieldName);
+        Comparable lastId = cursorValue(idPath.getJavaType(), cursor.id());
+        Predicate afterId = ascending ? cb.greaterThan(idPath, lastId) : cb.lessThan(idPath, lastId);
+        if (sortField.equals(idFieldName)) {
+            return afterId;
+        }
+        Path<Comparable> sortPath = root.get(sortField);
+        if (!Comparable.class.isAssignableFrom(sortPath.getJavaType())) {
+            throw new InvalidFilterException("Keyset pagination requires a Comparable sort field: " + sortField);
+        }
+        Comparable lastValue = cursorValue(sortPath.getJavaType(), cursor.sortValue());
+        Predicate afterValue = ascending ? cb.greaterThan(sortPath, lastValue) : cb.lessThan(sortPath, lastValue);
+        return cb.or(afterValue, cb.and(cb.equal(sortPath, lastValue), afterId));
+    }
+
+    /**
+     * Converts a decoded cursor part to the field type; a tampered cursor is a client error, not a 500.
+     */
+    @SuppressWarnings("rawtypes")
+    private static Comparable cursorValue(Class<?> type, String value) {
+        try {
+            return (Comparable) EntityUtil.convertValue(type, value);
+        } catch (IllegalArgumentException | DateTimeException | ClassCastException ex) {
+            throw new InvalidFilterException("Invalid pagination cursor", ex);
+        }
     }
-}
\ No newline at end of file
+}
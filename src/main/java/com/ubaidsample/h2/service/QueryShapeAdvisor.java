@@ -0,0 +1,318 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import com.ubaidsample.h2.dto.request.FilterRequestDTO;
+import com.ubaidsample.h2.dto.request.PageRequestDTO;
+import com.ubaidsample.h2.dto.response.QueryShapeDTO;
+import com.ubaidsample.h2.util.EntityUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Groups the queries GenericSpecification generates by shape (filter fields and operators,
+ * free-text search, sort and paging mode, never values) and keeps latency percentiles per
+ * shape. The first time a shape runs slower than app.query-advisor.slow-threshold, the SQL
+ * Hibernate generated for it is run through H2's EXPLAIN in the background; a plan with a
+ * table scan gets an index suggestion, applied right away when app.query-advisor.auto-apply
+ * is set. The SQL is seen through {@link #capture}, Hibernate's statement inspector.
+ */
+@Slf4j
+@Service
+public class QueryShapeAdvisor {
+
+    private static final Set<String> EQUALITY_OPERATORS = Set.of("eq", "in");
+    private static final Set<String> RANGE_OPERATORS = Set.of("gt", "gte", "lt", "lte");
+    private static final String DELETED_COLUMN = "is_deleted";
+    private static final String TABLE_SCAN = ".tableScan";
+    // Page query and COUNT are enough to explain a shape
+    private static final int MAX_STATEMENTS = 2;
+
+    // SQL of the shape being recorded on this thread, null when nothing is recorded
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final int maxShapes;
+    private final int top;
+    private final boolean autoApply;
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+    // One EXPLAIN at a time; further slow shapes wait for their next slow run
+    private final ThreadPoolExecutor explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), runnable -> new Thread(runnable, "query-advisor"));
+
+    public QueryShapeAdvisor(JdbcTemplate jdbcTemplate, MeterRegistry registry,
+                             @Value("${app.query-advisor.enabled:true}") boolean enabled,
+                             @Value("${app.query-advisor.slow-threshold:100ms}") Duration slowThreshold,
+                             @Value("${app.query-advisor.max-shapes:500}") int maxShapes,
+                             @Value("${app.query-advisor.top:20}") int top,
+                             @Value("${app.query-advisor.auto-apply:false}") boolean autoApply) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.maxShapes = maxShapes;
+        this.top = top;
+        this.autoApply = autoApply;
+    }
+
+    /**
+     * Runs a search and records it under its shape; a search that throws is not recorded.
+     */
+    public <V> V record(Class<?> entityClass, PageRequestDTO pageRequest, Supplier<V> search) {
+        if (!enabled || CAPTURED.get() != null) {
+            return search.get();
+        }
+        String shape = fingerprint(entityClass, pageRequest);
+        if (!shapes.containsKey(shape) && shapes.size() >= maxShapes) {
+            return search.get();
+        }
+        List<String> captured = new ArrayList<>(MAX_STATEMENTS);
+        CAPTURED.set(captured);
+        long started = System.nanoTime();
+        V result;
+        try {
+            result = search.get();
+        } finally {
+            CAPTURED.remove();
+        }
+        long elapsed = System.nanoTime() - started;
+        // Registered only once a search succeeds, so requests rejected for invalid fields never take a slot
+        shapes.computeIfAbsent(shape, key -> new ShapeStats(key, entityClass, pageRequest))
+                .record(elapsed, captured);
+        return result;
+    }
+
+    /**
+     * Statement inspector: keeps the SQL of the shape being recorded on this thread.
+     */
+    public static String capture(String sql) {
+        List<String> captured = CAPTURED.get();
+        if (captured != null && captured.size() < MAX_STATEMENTS) {
+            captured.add(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Shapes with the most total time first.
+     */
+    public List<QueryShapeDTO> topShapes() {
+        return shapes.values().stream()
+                .sorted(Comparator.comparingDouble(ShapeStats::totalNanos).reversed())
+                .limit(top)
+                .map(ShapeStats::toDTO)
+                .toList();
+    }
+
+    public void reset() {
+        shapes.values().forEach(stats -> registry.remove(stats.timer));
+        shapes.clear();
+    }
+
+    /**
+     * Normalized shape of a search: filters sorted by field and operator, values dropped.
+     */
+    static String fingerprint(Class<?> entityClass, PageRequestDTO pageRequest) {
+        List<String> terms = new ArrayList<>();
+        if (pageRequest.getFilters() != null) {
+            for (FilterRequestDTO filter : pageRequest.getFilters()) {
+                terms.add(filter.getField() + " " + operator(filter) + (filter.getValue() instanceof Collection<?> ? " (list)" : ""));
+            }
+            terms.sort(null);
+        }
+        if (pageRequest.getSearch() != null && !pageRequest.getSearch().isBlank()) {
+            terms.add("search");
+        }
+        return entityClass.getSimpleName()
+                + " where " + (terms.isEmpty() ? "true" : String.join(" and ", terms))
+                + " order by " + pageRequest.getSortBy() + " " + pageRequest.getSortDir().toLowerCase(Locale.ROOT)
+                + (pageRequest.getCursor() != null ? " keyset" : " offset")
+                + " count=" + (pageRequest.getCountMode() == null ? "exact" : pageRequest.getCountMode().toLowerCase(Locale.ROOT))
+                + (pageRequest.isIncludeDeleted() ? " with deleted" : "");
+    }
+
+    private static String operator(FilterRequestDTO filter) {
+        return filter.getOperator() == null ? "" : filter.getOperator().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Equality columns first, then one range column (or the sort column when there is none),
+     * led by is_deleted for live-row searches. Null when no filter could use an index.
+     */
+    private static String suggestIndex(Class<?> entityClass, PageRequestDTO pageRequest) {
+        List<String> columns = new ArrayList<>();
+        String range = null;
+        for (FilterRequestDTO filter : pageRequest.getFilters() == null ? List.<FilterRequestDTO>of() : pageRequest.getFilters()) {
+            String column = EntityUtil.getColumnName(entityClass, filter.getField());
+            if (column == null || columns.contains(column)) {
+                continue;
+            }
+            if (EQUALITY_OPERATORS.contains(operator(filter))) {
+                columns.add(column);
+            } else if (range == null && RANGE_OPERATORS.contains(operator(filter))) {
+                range = column;
+            }
+        }
+        if (columns.isEmpty() && range == null) {
+            return null;
+        }
+        if (range == null) {
+            String sortField = "id".equalsIgnoreCase(pageRequest.getSortBy())
+                    ? EntityUtil.getIdFieldName(entityClass) : pageRequest.getSortBy();
+            range = EntityUtil.getColumnName(entityClass, sortField);
+        }
+        if (range != null && !columns.contains(range)) {
+            columns.add(range);
+        }
+        if (!pageRequest.isIncludeDeleted() && !columns.contains(DELETED_COLUMN)) {
+            columns.add(0, DELETED_COLUMN);
+        }
+        String table = EntityUtil.getTableName(entityClass);
+        return "CREATE INDEX IF NOT EXISTS idx_qa_" + table + "_" + String.join("_", columns)
+                + " ON " + table + " (" + String.join(", ", columns) + ")";
+    }
+
+    private List<String> explain(String sql) {
+        // Plain EXPLAIN only plans the statement; the parameters are bound to NULL just to be set
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setNull(i, Types.NULL);
+            }
+            return statement;
+        }, (rs, rowNum) -> rs.getString(1));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        explainer.shutdownNow();
+    }
+
+    private final class ShapeStats {
+
+        private final String shape;
+        private final Class<?> entityClass;
+        // Filters of the first request seen, enough to derive columns for an index
+        private final PageRequestDTO sample;
+        private final Timer timer;
+        private final AtomicLong slowExecutions = new AtomicLong();
+        private final AtomicBoolean explaining = new AtomicBoolean();
+        private volatile List<String> sql = List.of();
+        private volatile List<String> plan;
+        private volatile Boolean tableScan;
+        private volatile String suggestedIndex;
+        private volatile boolean indexApplied;
+
+        private ShapeStats(String shape, Class<?> entityClass, PageRequestDTO sample) {
+            this.shape = shape;
+            this.entityClass = entityClass;
+            this.sample = sample;
+            this.timer = Timer.builder("search.query.shape")
+                    .description("Search execution time per query shape")
+                    .tag("shape", shape)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+        }
+
+        private void record(long elapsedNanos, List<String> captured) {
+            timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            if (!captured.isEmpty() && sql.isEmpty()) {
+                sql = List.copyOf(captured);
+            }
+            if (elapsedNanos < slowThresholdNanos) {
+                return;
+            }
+            slowExecutions.incrementAndGet();
+            if (plan == null && !sql.isEmpty() && explaining.compareAndSet(false, true)) {
+                try {
+                    explainer.execute(this::explain);
+                } catch (RejectedExecutionException ex) {
+                    explaining.set(false);
+                }
+            }
+        }
+
+        private void explain() {
+            try {
+                List<String> plans = new ArrayList<>(sql.size());
+                for (String statement : sql) {
+                    plans.addAll(QueryShapeAdvisor.this.explain(statement));
+                }
+                tableScan = plans.stream().anyMatch(line -> line.contains(TABLE_SCAN));
+                suggestedIndex = tableScan ? suggestIndex(entityClass, sample) : null;
+                plan = plans;
+                if (suggestedIndex != null) {
+                    log.warn("QueryShapeAdvisor -> shape [{}] scans the table, suggested: {}", shape, suggestedIndex);
+                    if (autoApply && !indexApplied) {
+                        jdbcTemplate.execute(suggestedIndex);
+                        indexApplied = true;
+                        // Explained again on its next slow run, against the new index
+                        plan = null;
+                        log.info("QueryShapeAdvisor -> applied {}", suggestedIndex);
+                    }
+                }
+            } catch (RuntimeException ex) {
+                log.warn("QueryShapeAdvisor -> could not explain shape [{}]: {}", shape, ex.getMessage());
+                plan = List.of("EXPLAIN failed: " + ex.getMessage());
+            } finally {
+                explaining.set(false);
+            }
+        }
+
+        private double totalNanos() {
+            return timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+
+        private QueryShapeDTO toDTO() {
+            double p50 = 0;
+            double p95 = 0;
+            double p99 = 0;
+            for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+                if (value.percentile() == 0.5) {
+                    p50 = value.value(TimeUnit.MILLISECONDS);
+                } else if (value.percentile() == 0.95) {
+                    p95 = value.value(TimeUnit.MILLISECONDS);
+                } else if (value.percentile() == 0.99) {
+                    p99 = value.value(TimeUnit.MILLISECONDS);
+                }
+            }
+            return new QueryShapeDTO(shape, timer.count(), slowExecutions.get(), timer.totalTime(TimeUnit.MILLISECONDS),
+                    timer.mean(TimeUnit.MILLISECONDS), p50, p95, p99, timer.max(TimeUnit.MILLISECONDS),
+                    sql, plan, tableScan, suggestedIndex, indexApplied);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import com.ubaidsample.h2.util.CompiledMapper;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.BeanUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Column projection of an entity onto a response class: selects only the entity attributes
+ * the response declares and fills the response from the returned tuples, so rows never
+ * enter the persistence context. Built once per entity/response pair from class metadata,
+ * with setters compiled by {@link CompiledMapper}.
+ */
+public final class ResponseProjection<R> {
+
+    private static final Map<String, ResponseProjection<?>> PROJECTIONS = new ConcurrentHashMap<>();
+
+    private final Supplier<R> constructor;
+    private final List<String> attributes;
+    private final List<BiConsumer<Object, Object>> setters;
+
+    private ResponseProjection(Supplier<R> constructor, List<String> attributes, List<BiConsumer<Object, Object>> setters) {
+        this.constructor = constructor;
+        this.attributes = attributes;
+        this.setters = setters;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <R> ResponseProjection<R> of(Class<?> entityClass, Class<R> responseClass) {
+        return (ResponseProjection<R>) PROJECTIONS.computeIfAbsent(entityClass.getName() + "->" + responseClass.getName(),
+                key -> build(entityClass, responseClass));
+    }
+
+    private static <R> ResponseProjection<R> build(Class<?> entityClass, Class<R> responseClass) {
+        List<String> attributes = new ArrayList<>();
+        List<BiConsumer<Object, Object>> setters = new ArrayList<>();
+        for (PropertyDescriptor property : BeanUtils.getPropertyDescriptors(responseClass)) {
+            Method setter = property.getWriteMethod();
+            // Response properties without a matching entity attribute stay null, as with ModelMapper
+            if (setter == null || !hasAttribute(entityClass, property.getName(), property.getPropertyType())) {
+                continue;
+            }
+            attributes.add(property.getName());
+            setters.add(CompiledMapper.setter(setter));
+        }
+        return new ResponseProjection<>(CompiledMapper.constructor(responseClass), List.copyOf(attributes), List.copyOf(setters));
+    }
+
+    private static boolean hasAttribute(Class<?> entityClass, String name, Class<?> type) {
+        try {
+            return type.isAssignableFrom(entityClass.getDeclaredField(name).getType());
+        } catch (NoSuchFieldException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether the attribute is one of the entity attributes the response exposes.
+     */
+    public boolean includes(String attribute) {
+        return attributes.contains(attribute);
+    }
+
+    /**
+     * The response attributes plus any extra attributes the caller needs from each row
+     * (sort keys, primary key), each aliased by its attribute name.
+     */
+    public List<Selection<?>> selections(Root<?> root, Collection<String> extraAttributes) {
+        Set<String> selected = new LinkedHashSet<>(attributes);
+        selected.addAll(extraAttributes);
+        List<Selection<?>> selections = new ArrayList<>(selected.size());
+        for (String attribute : selected) {
+            selections.add(root.get(attribute).alias(attribute));
+        }
+        return selections;
+    }
+
+    public R toResponse(Tuple tuple) {
+        R response = constructor.get();
+        for (int i = 0; i < attributes.size(); i++) {
+            Object value = tuple.get(attributes.get(i));
+            // Null columns are skipped, as with MapperUtil
+            if (value != null) {
+                setters.get(i).accept(response, value);
+            }
+        }
+        return response;
+    }
+}
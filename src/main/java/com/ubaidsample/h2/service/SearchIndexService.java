@@ -0,0 +1,170 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import com.ubaidsample.h2.entity.User;
+import com.ubaidsample.h2.util.EntityUtil;
+import com.ubaidsample.h2.util.SearchTokenUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maintains the trigram index (search_tokens) over the @Searchable fields of an entity.
+ * Writes join the caller's transaction so the index always matches the committed rows.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchIndexService {
+
+    private static final String INSERT_SQL = "INSERT INTO search_tokens (entity_type, token, entity_id) VALUES (?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM search_tokens WHERE entity_type = ? AND entity_id = ?";
+    private static final String DELETE_ALL_SQL = "DELETE FROM search_tokens WHERE entity_type = ? AND entity_id = ANY(?)";
+    private static final String ANY_TOKEN_SQL = "SELECT entity_id FROM search_tokens WHERE entity_type = ? LIMIT 1";
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Replaces the indexed tokens of the given entity with the tokens of its current values.
+     */
+    public void index(Object entity) {
+        Class<?> entityClass = Hibernate.getClass(entity);
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+        Long id = (Long) wrapper.getPropertyValue(EntityUtil.getIdFieldName(entityClass));
+        jdbcTemplate.update(DELETE_SQL, entityClass.getSimpleName(), id);
+        insertTokens(entityClass, wrapper, id);
+    }
+
+    /**
+     * Indexes newly inserted entities of one type with a single JDBC batch; no existing
+     * tokens are deleted since the rows have never been indexed.
+     */
+    public void indexNew(Collection<?> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        Class<?> entityClass = Hibernate.getClass(entities.iterator().next());
+        String idField = EntityUtil.getIdFieldName(entityClass);
+        String entityType = entityClass.getSimpleName();
+        List<Object[]> rows = new ArrayList<>();
+        for (Object entity : entities) {
+            BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+            Object id = wrapper.getPropertyValue(idField);
+            for (String token : tokensOf(entityClass, wrapper)) {
+                rows.add(new Object[]{entityType, token, id});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    /**
+     * Removes every indexed token of the given entity row.
+     */
+    public void remove(Class<?> entityClass, Long id) {
+        jdbcTemplate.update(DELETE_SQL, entityClass.getSimpleName(), id);
+    }
+
+    /**
+     * Removes every indexed token of the given entity rows with one statement.
+     */
+    public void removeAll(Class<?> entityClass, Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update(DELETE_ALL_SQL, entityClass.getSimpleName(), ids.toArray(new Long[0]));
+        }
+    }
+
+    /**
+     * Rows loaded by import.sql (or restored from a file database without the index) are
+     * indexed once at startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildUsersIfEmpty() {
+        if (jdbcTemplate.queryForList(ANY_TOKEN_SQL, Long.class, User.class.getSimpleName()).isEmpty()) {
+            long indexed = rebuild(User.class);
+            log.info("SearchIndexService -> indexed {} {} rows", indexed, User.class.getSimpleName());
+        }
+    }
+
+    /**
+     * Indexes every row of the entity in primary-key chunks, each in its own transaction.
+     */
+    public <T> long rebuild(Class<T> entityClass) {
+        String idField = EntityUtil.getIdFieldName(entityClass);
+        long indexed = 0;
+        Object lastId = null;
+        List<T> chunk;
+        do {
+            Object after = lastId;
+            chunk = transactionTemplate.execute(status -> {
+                String jpql = "select e from " + entityClass.getSimpleName() + " e"
+                        + (after == null ? "" : " where e." + idField + " > :lastId")
+                        + " order by e." + idField;
+                TypedQuery<T> query = entityManager.createQuery(jpql, entityClass)
+                        .setMaxResults(REBUILD_CHUNK_SIZE);
+                if (after != null) {
+                    query.setParameter("lastId", after);
+                }
+                List<T> rows = query.getResultList();
+                for (T row : rows) {
+                    BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(row);
+                    insertTokens(entityClass, wrapper, (Long) wrapper.getPropertyValue(idField));
+                }
+                entityManager.clear();
+                return rows;
+            });
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            indexed += chunk.size();
+            lastId = PropertyAccessorFactory.forBeanPropertyAccess(chunk.get(chunk.size() - 1)).getPropertyValue(idField);
+        } while (chunk.size() == REBUILD_CHUNK_SIZE);
+        return indexed;
+    }
+
+    private void insertTokens(Class<?> entityClass, BeanWrapper wrapper, Long id) {
+        Set<String> tokens = tokensOf(entityClass, wrapper);
+        if (tokens.isEmpty()) {
+            return;
+        }
+        String entityType = entityClass.getSimpleName();
+        jdbcTemplate.batchUpdate(INSERT_SQL, tokens, tokens.size(), (ps, token) -> {
+            ps.setString(1, entityType);
+            ps.setString(2, token);
+            ps.setLong(3, id);
+        });
+    }
+
+    private Set<String> tokensOf(Class<?> entityClass, BeanWrapper wrapper) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String field : EntityUtil.getSearchableFieldNames(entityClass)) {
+            tokens.addAll(SearchTokenUtil.indexTokens((String) wrapper.getPropertyValue(field)));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import com.ubaidsample.h2.dto.response.UserResponseDTO;
+import com.ubaidsample.h2.entity.RetentionCheckpoint;
+import com.ubaidsample.h2.entity.User;
+import com.ubaidsample.h2.exception.ResourceNotFoundException;
+import com.ubaidsample.h2.repository.ArchivedUserRepository;
+import com.ubaidsample.h2.repository.RetentionCheckpointRepository;
+import com.ubaidsample.h2.util.CacheUtil;
+import com.ubaidsample.h2.util.MapperUtil;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the users table small: users soft-deleted longer than app.user.retention.deleted-after,
+ * or whose dateOfLeaving lies more than app.user.retention.left-after behind, are copied to
+ * users_archive and deleted. Each chunk is one short transaction in user id order that also
+ * commits the checkpoint, so a restarted pass continues after the last moved chunk.
+ */
+@Slf4j
+@Service
+// Eager, as lazy beans are never created and so never scheduled
+@Lazy(false)
+public class UserArchiveService {
+
+    public static final String JOB_NAME = "user-retention";
+
+    private static final String COLUMNS = "user_id, idempotency_key, user_name, email, password, date_of_birth,"
+            + " date_of_leaving, postal_code, version, created_by, created_date, updated_by, updated_date, is_deleted, deleted_date";
+    // FOR UPDATE: a concurrent activate or update of a row in the chunk waits for the move instead of being lost
+    private static final String NEXT_CHUNK_SQL = "SELECT user_id FROM users WHERE user_id > ?"
+            + " AND ((is_deleted = TRUE AND deleted_date < ?) OR date_of_leaving < ?) ORDER BY user_id LIMIT ? FOR UPDATE";
+    private static final String ARCHIVE_SQL = "INSERT INTO users_archive (" + COLUMNS + ", archived_date) SELECT " + COLUMNS
+            + ", ? FROM users WHERE user_id = ANY(?)";
+    private static final String DELETE_SQL = "DELETE FROM users WHERE user_id = ANY(?)";
+
+    private final ArchivedUserRepository archivedUserRepository;
+    private final RetentionCheckpointRepository checkpointRepository;
+    private final SearchIndexService searchIndexService;
+    private final PageCountCache pageCountCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration deletedAfter;
+    private final Duration leftAfter;
+    private final int chunkSize;
+    private final Duration pause;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopping;
+
+    public UserArchiveService(ArchivedUserRepository archivedUserRepository, RetentionCheckpointRepository checkpointRepository,
+                              SearchIndexService searchIndexService, PageCountCache pageCountCache, JdbcTemplate jdbcTemplate,
+                              EntityManager entityManager, PlatformTransactionManager transactionManager,
+                              @Value("${app.user.retention.enabled:true}") boolean enabled,
+                              @Value("${app.user.retention.deleted-after:90d}") Duration deletedAfter,
+                              @Value("${app.user.retention.left-after:30d}") Duration leftAfter,
+                              @Value("${app.user.retention.chunk-size:500}") int chunkSize,
+                              @Value("${app.user.retention.pause:200ms}") Duration pause) {
+        this.archivedUserRepository = archivedUserRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.searchIndexService = searchIndexService;
+        this.pageCountCache = pageCountCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.deletedAfter = deletedAfter;
+        this.leftAfter = leftAfter;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+    }
+
+    /**
+     * Slow path for users that are no longer in the users table.
+     */
+    @Transactional(readOnly = true)
+    public UserResponseDTO findArchivedById(Long id) {
+        log.info("UserArchiveService -> findArchivedById() called");
+        return archivedUserRepository.findById(id)
+                .map(archived -> MapperUtil.map(archived, UserResponseDTO.class))
+                .orElseThrow(() -> new ResourceNotFoundException("No archived user found with id " + id));
+    }
+
+    @Scheduled(cron = "${app.user.retention.cron:0 30 2 * * *}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archive();
+        }
+    }
+
+    /**
+     * Runs (or resumes) one pass and returns the number of users it has archived so far.
+     */
+    public long archive() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("UserArchiveService -> archive() skipped, a pass is already running");
+            return 0;
+        }
+        try {
+            RetentionCheckpoint checkpoint = transactionTemplate.execute(status -> startOrResume());
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime deletedBefore = now.minus(deletedAfter);
+            LocalDate leftBefore = now.toLocalDate().minusDays(leftAfter.toDays());
+            long afterId = checkpoint.getLastUserId();
+            long archived = checkpoint.getArchivedCount();
+            while (!stopping) {
+                long from = afterId;
+                List<Long> moved = transactionTemplate.execute(status -> moveChunk(from, deletedBefore, leftBefore));
+                archived += moved.size();
+                if (moved.size() < chunkSize) {
+                    transactionTemplate.executeWithoutResult(status -> finish());
+                    log.info("UserArchiveService -> pass finished, {} users archived", archived);
+                    return archived;
+                }
+                afterId = moved.get(moved.size() - 1);
+                // Leave the table to foreground writes between chunks
+                Thread.sleep(pause.toMillis());
+            }
+            log.info("UserArchiveService -> pass stopped after user id {}, {} users archived so far", afterId, archived);
+            return archived;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.info("UserArchiveService -> pass interrupted, it resumes from the checkpoint on the next run");
+            return 0;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private RetentionCheckpoint startOrResume() {
+        RetentionCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                .orElseGet(() -> new RetentionCheckpoint(JOB_NAME, 0L, 0L, null, null));
+        if (checkpoint.getStartedDate() != null && checkpoint.getCompletedDate() == null) {
+            log.info("UserArchiveService -> resuming pass after user id {}", checkpoint.getLastUserId());
+            return checkpoint;
+        }
+        checkpoint.setLastUserId(0L);
+        checkpoint.setArchivedCount(0L);
+        checkpoint.setStartedDate(LocalDateTime.now());
+        checkpoint.setCompletedDate(null);
+        return checkpointRepository.save(checkpoint);
+    }
+
+    private List<Long> moveChunk(long afterId, LocalDateTime deletedBefore, LocalDate leftBefore) {
+        List<Long> ids = jdbcTemplate.queryForList(NEXT_CHUNK_SQL, Long.class, afterId, deletedBefore, leftBefore, chunkSize);
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        Long[] idArray = ids.toArray(new Long[0]);
+        jdbcTemplate.update(ARCHIVE_SQL, LocalDateTime.now(), idArray);
+        jdbcTemplate.update(DELETE_SQL, (Object) idArray);
+        searchIndexService.removeAll(User.class, ids);
+        // Committed together with the move, so a restart never repeats or skips a chunk
+        RetentionCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME).orElseThrow();
+        checkpoint.setLastUserId(ids.get(ids.size() - 1));
+        checkpoint.setArchivedCount(checkpoint.getArchivedCount() + ids.size());
+        // Hibernate does not see these statements
+        CacheUtil.evictAfterCommit(entityManager.getEntityManagerFactory(), User.class);
+        pageCountCache.evict(User.class);
+        return ids;
+    }
+
+    private void finish() {
+        RetentionCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME).orElseThrow();
+        checkpoint.setLastUserId(0L);
+        checkpoint.setCompletedDate(LocalDateTime.now());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // The running chunk commits, the next one is left to the checkpoint
+        stopping = true;
+    }
+}
@@ -0,0 +1,461 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import com.ubaidsample.h2.dto.request.UserRequestDTO;
+import com.ubaidsample.h2.dto.response.BatchItemResultDTO;
+import com.ubaidsample.h2.dto.response.BatchResponseDTO;
+import com.ubaidsample.h2.dto.response.UserResponseDTO;
+import com.ubaidsample.h2.entity.User;
+import com.ubaidsample.h2.exception.BatchLimitExceededException;
+import com.ubaidsample.h2.exception.MissingInputException;
+import com.ubaidsample.h2.repository.UserRepository;
+import com.ubaidsample.h2.util.CacheUtil;
+import com.ubaidsample.h2.util.ConstraintUtil;
+import com.ubaidsample.h2.util.MapperUtil;
+import com.ubaidsample.h2.util.SoftDeleteUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Bulk user creation. Items are validated up front, then written in chunks, each in its own
+ * transaction: one IN query per chunk resolves idempotency keys, emails and user names, and
+ * the new rows go out as JDBC insert batches with sequence ids. A chunk that loses a race
+ * with a concurrent writer is replayed item by item.
+ * <p>
+ * The upsert path writes each chunk with one insert-only MERGE keyed on the idempotency key,
+ * so replayed items cost no exception and no extra round trip, and returns the stored rows.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserBatchService {
+
+    public static final String CREATED = "CREATED";
+    public static final String EXISTING = "EXISTING";
+    public static final String CONFLICT = "CONFLICT";
+    public static final String INVALID = "INVALID";
+
+    private static final String MERGE_ROW = "(CAST(? AS BIGINT), CAST(? AS VARCHAR(50)), CAST(? AS VARCHAR(50)),"
+            + " CAST(? AS VARCHAR(50)), CAST(? AS VARCHAR(255)), CAST(? AS DATE), CAST(? AS DATE), CAST(? AS INTEGER))";
+    private static final String MERGE_PREFIX = "MERGE INTO users u USING (VALUES ";
+    private static final String MERGE_SUFFIX = ") AS s(user_id, idempotency_key, user_name, email, password,"
+            + " date_of_birth, date_of_leaving, postal_code)"
+            + " ON u.idempotency_key = s.idempotency_key"
+            + " WHEN NOT MATCHED THEN INSERT (user_id, idempotency_key, user_name, email, password, date_of_birth,"
+            + " date_of_leaving, postal_code, created_by, created_date, updated_by, updated_date, is_deleted)"
+            + " VALUES (s.user_id, s.idempotency_key, s.user_name, s.email, s.password, s.date_of_birth,"
+            + " s.date_of_leaving, s.postal_code, ?, ?, ?, ?, FALSE)";
+
+    private final UserRepository repository;
+
+    private final EntityManager entityManager;
+
+    private final Validator validator;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final SearchIndexService searchIndexService;
+
+    private final PageCountCache pageCountCache;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final AuditorAware<String> auditorAware;
+
+    private final AvailabilityService availabilityService;
+
+    private final UserIdAllocator idAllocator;
+
+    @Value("${app.user.batch.max-size:50000}")
+    private int maxSize;
+
+    @Value("${app.user.batch.chunk-size:1000}")
+    private int chunkSize;
+
+    public BatchResponseDTO saveAll(List<UserRequestDTO> requests) {
+        log.info("UserBatchService -> saveAll() called with {} items", requests == null ? 0 : requests.size());
+        return process(requests, this::writeChunk);
+    }
+
+    /**
+     * Creates the users whose idempotency key is not stored yet and returns the stored row for
+     * every valid item, whether it was created now or by an earlier request.
+     */
+    public BatchResponseDTO upsertAll(List<UserRequestDTO> requests) {
+        log.info("UserBatchService -> upsertAll() called with {} items", requests == null ? 0 : requests.size());
+        return process(requests, (transactionTemplate, items, indices, results, state) ->
+                upsertChunk(transactionTemplate, items, indices, results, state, index -> idAllocator.next()));
+    }
+
+    /**
+     * Same as {@link #upsertAll(List)} for items whose ids were already taken from
+     * {@link UserIdAllocator}: a new item is stored under reservedIds.get(i).
+     */
+    public BatchResponseDTO upsertAll(List<UserRequestDTO> requests, List<Long> reservedIds) {
+        log.info("UserBatchService -> upsertAll() called with {} reserved ids", reservedIds.size());
+        return process(requests, (transactionTemplate, items, indices, results, state) ->
+                upsertChunk(transactionTemplate, items, indices, results, state, reservedIds::get));
+    }
+
+    private BatchResponseDTO process(List<UserRequestDTO> requests, ChunkWriter writer) {
+        if (requests == null || requests.isEmpty()) {
+            throw new MissingInputException("At least one user is required");
+        }
+        if (requests.size() > maxSize) {
+            throw new BatchLimitExceededException("A batch can contain at most " + maxSize + " users, got " + requests.size());
+        }
+        BatchItemResultDTO[] results = new BatchItemResultDTO[requests.size()];
+        BatchState state = new BatchState();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Integer> chunk = new ArrayList<>(chunkSize);
+        for (int i = 0; i < requests.size(); i++) {
+            List<String> errors = validate(requests.get(i));
+            if (!errors.isEmpty()) {
+                UserRequestDTO request = requests.get(i);
+                results[i] = new BatchItemResultDTO(i, INVALID, null, request == null ? null : request.getIdempotencyKey(), errors, null);
+                continue;
+            }
+            chunk.add(i);
+            if (chunk.size() == chunkSize) {
+                writer.write(transactionTemplate, requests, chunk, results, state);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writer.write(transactionTemplate, requests, chunk, results, state);
+        }
+        if (state.createdCount > 0) {
+            pageCountCache.evict(User.class);
+        }
+        return summarize(results);
+    }
+
+    /**
+     * Writes one chunk in its own transaction; on a unique-constraint race every item of the
+     * chunk is retried in a transaction of its own so one conflict does not fail its neighbours.
+     */
+    private void writeChunk(TransactionTemplate transactionTemplate, List<UserRequestDTO> requests, List<Integer> indices,
+                            BatchItemResultDTO[] results, BatchState state) {
+        try {
+            ChunkOutcome outcome = transactionTemplate.execute(status -> includeDeleted(() -> insert(requests, indices, state)));
+            state.merge(outcome, results);
+        } catch (DataIntegrityViolationException | PersistenceException ex) {
+            log.warn("Batch chunk of {} users hit a concurrent write, retrying item by item", indices.size());
+            for (Integer index : indices) {
+                try {
+                    ChunkOutcome outcome = transactionTemplate.execute(status -> includeDeleted(() -> insert(requests, List.of(index), state)));
+                    state.merge(outcome, results);
+                } catch (DataIntegrityViolationException | PersistenceException itemEx) {
+                    results[index] = new BatchItemResultDTO(index, CONFLICT, null, requests.get(index).getIdempotencyKey(),
+                            List.of("Conflicts with a concurrently created user"), null);
+                }
+            }
+        }
+    }
+
+    /**
+     * The unique constraints cover soft-deleted users, so the chunk's lookups must see them too.
+     */
+    private ChunkOutcome includeDeleted(Supplier<ChunkOutcome> chunk) {
+        return SoftDeleteUtil.includeDeleted(entityManager, chunk);
+    }
+
+    private ChunkOutcome insert(List<UserRequestDTO> requests, List<Integer> indices, BatchState state) {
+        Set<String> keys = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> userNames = new HashSet<>();
+        for (Integer index : indices) {
+            UserRequestDTO request = requests.get(index);
+            keys.add(request.getIdempotencyKey());
+            emails.add(request.getEmail());
+            userNames.add(request.getUserName());
+        }
+        // One round trip per unique column for the whole chunk
+        Map<String, Long> existingKeys = new HashMap<>();
+        for (Object[] row : repository.findIdsByIdempotencyKeyIn(keys)) {
+            existingKeys.put((String) row[0], (Long) row[1]);
+        }
+        Set<String> existingEmails = new HashSet<>(repository.findExistingEmails(emails));
+        Set<String> existingUserNames = new HashSet<>(repository.findExistingUserNames(userNames));
+
+        ChunkOutcome outcome = new ChunkOutcome();
+        for (Integer index : indices) {
+            UserRequestDTO request = requests.get(index);
+            String key = request.getIdempotencyKey();
+            Long existingId = existingKeys.containsKey(key) ? existingKeys.get(key)
+                    : state.createdKeys.containsKey(key) ? state.createdKeys.get(key) : outcome.createdKeys.get(key);
+            if (existingId != null) {
+                outcome.results.add(new BatchItemResultDTO(index, EXISTING, existingId, key, List.of(), null));
+            } else if (existingEmails.contains(request.getEmail()) || state.emails.contains(request.getEmail())
+                    || outcome.emails.contains(request.getEmail())) {
+                outcome.results.add(new BatchItemResultDTO(index, CONFLICT, null, key,
+                        List.of("User already exists with email: " + request.getEmail()), null));
+            } else if (existingUserNames.contains(request.getUserName()) || state.userNames.contains(request.getUserName())
+                    || outcome.userNames.contains(request.getUserName())) {
+                outcome.results.add(new BatchItemResultDTO(index, CONFLICT, null, key,
+                        List.of("User already exists with username: " + request.getUserName()), null));
+            } else {
+                User entity = MapperUtil.map(request, User.class);
+                // The id is drawn from the pooled sequence here; the INSERT itself is batched at flush
+                entityManager.persist(entity);
+                outcome.created.add(entity);
+                outcome.createdKeys.put(key, entity.getUserId());
+                outcome.emails.add(request.getEmail());
+                outcome.userNames.add(request.getUserName());
+                outcome.results.add(new BatchItemResultDTO(index, CREATED, entity.getUserId(), key, List.of(), null));
+            }
+        }
+        entityManager.flush();
+        searchIndexService.indexNew(outcome.created);
+        for (User user : outcome.created) {
+            availabilityService.register(user.getUserName(), user.getEmail());
+        }
+        // Keep the persistence context from growing across chunks
+        entityManager.clear();
+        return outcome;
+    }
+
+    /**
+     * Upserts one chunk in its own transaction; a unique-constraint race replays the chunk
+     * item by item, and whatever still fails is reported as a conflict on that item alone.
+     */
+    private void upsertChunk(TransactionTemplate transactionTemplate, List<UserRequestDTO> requests, List<Integer> indices,
+                             BatchItemResultDTO[] results, BatchState state, IntFunction<Long> idFor) {
+        try {
+            state.merge(transactionTemplate.execute(status -> includeDeleted(() -> upsert(requests, indices, idFor))), results);
+        } catch (DataIntegrityViolationException ex) {
+            log.warn("Upsert chunk of {} users hit a concurrent write, retrying item by item", indices.size());
+            for (Integer index : indices) {
+                try {
+                    state.merge(transactionTemplate.execute(status -> includeDeleted(() -> upsert(requests, List.of(index), idFor))), results);
+                } catch (DataIntegrityViolationException itemEx) {
+                    results[index] = conflict(index, requests.get(index), itemEx);
+                }
+            }
+        }
+    }
+
+    private ChunkOutcome upsert(List<UserRequestDTO> requests, List<Integer> indices, IntFunction<Long> idFor) {
+        Set<String> keys = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> userNames = new HashSet<>();
+        for (Integer index : indices) {
+            UserRequestDTO request = requests.get(index);
+            keys.add(request.getIdempotencyKey());
+            emails.add(request.getEmail());
+            userNames.add(request.getUserName());
+        }
+        // One round trip tells stored keys apart from emails or user names owned by another key
+        Set<String> storedKeys = new HashSet<>();
+        Map<String, String> emailOwners = new HashMap<>();
+        Map<String, String> userNameOwners = new HashMap<>();
+        for (Object[] row : repository.findUniqueColumns(keys, emails, userNames)) {
+            if (keys.contains((String) row[0])) {
+                storedKeys.add((String) row[0]);
+            }
+            emailOwners.put((String) row[1], (String) row[0]);
+            userNameOwners.put((String) row[2], (String) row[0]);
+        }
+
+        Map<String, Integer> readBack = new LinkedHashMap<>();
+        Map<String, BatchItemResultDTO> conflicts = new HashMap<>();
+        List<Integer> duplicates = new ArrayList<>();
+        List<Integer> inserts = new ArrayList<>();
+        for (Integer index : indices) {
+            UserRequestDTO request = requests.get(index);
+            String key = request.getIdempotencyKey();
+            if (readBack.containsKey(key) || conflicts.containsKey(key)) {
+                duplicates.add(index);
+            } else if (storedKeys.contains(key)) {
+                readBack.put(key, index);
+            } else if (!key.equals(emailOwners.getOrDefault(request.getEmail(), key))) {
+                conflicts.put(key, new BatchItemResultDTO(index, CONFLICT, null, key,
+                        List.of("User already exists with email: " + request.getEmail()), null));
+            } else if (!key.equals(userNameOwners.getOrDefault(request.getUserName(), key))) {
+                conflicts.put(key, new BatchItemResultDTO(index, CONFLICT, null, key,
+                        List.of("User already exists with username: " + request.getUserName()), null));
+            } else {
+                emailOwners.put(request.getEmail(), key);
+                userNameOwners.put(request.getUserName(), key);
+                readBack.put(key, index);
+                inserts.add(index);
+            }
+        }
+        Map<String, Long> assignedIds = merge(requests, inserts, idFor);
+        if (!inserts.isEmpty()) {
+            CacheUtil.evictQueriesAfterCommit(entityManager.getEntityManagerFactory());
+        }
+
+        ChunkOutcome outcome = new ChunkOutcome();
+        Map<String, BatchItemResultDTO> byKey = new HashMap<>(conflicts);
+        Map<String, User> stored = new HashMap<>();
+        for (User user : readBack.isEmpty() ? List.<User>of() : repository.findByIdempotencyKeyIn(readBack.keySet())) {
+            stored.put(user.getIdempotencyKey(), user);
+        }
+        for (Map.Entry<String, Integer> entry : readBack.entrySet()) {
+            String key = entry.getKey();
+            User user = stored.get(key);
+            BatchItemResultDTO result;
+            if (user == null) {
+                result = new BatchItemResultDTO(entry.getValue(), CONFLICT, null, key,
+                        List.of("Conflicts with a concurrently modified user"), null);
+            } else {
+                // A concurrent writer may have stored the key first, in which case MERGE inserted nothing
+                boolean created = user.getUserId().equals(assignedIds.get(key));
+                if (created) {
+                    outcome.created.add(user);
+                }
+                result = new BatchItemResultDTO(entry.getValue(), created ? CREATED : EXISTING, user.getUserId(), key,
+                        List.of(), MapperUtil.map(user, UserResponseDTO.class));
+            }
+            byKey.put(key, result);
+        }
+        outcome.results.addAll(byKey.values());
+        for (Integer index : duplicates) {
+            BatchItemResultDTO first = byKey.get(requests.get(index).getIdempotencyKey());
+            outcome.results.add(new BatchItemResultDTO(index, CREATED.equals(first.getStatus()) ? EXISTING : first.getStatus(),
+                    first.getUserId(), first.getIdempotencyKey(), first.getErrors(), first.getUser()));
+        }
+        searchIndexService.indexNew(outcome.created);
+        for (User user : outcome.created) {
+            availabilityService.register(user.getUserName(), user.getEmail());
+        }
+        entityManager.clear();
+        return outcome;
+    }
+
+    /**
+     * Inserts the given items with one MERGE that skips any idempotency key already stored,
+     * and returns the id assigned to each key.
+     */
+    private Map<String, Long> merge(List<UserRequestDTO> requests, List<Integer> indices, IntFunction<Long> idFor) {
+        Map<String, Long> assignedIds = new HashMap<>();
+        if (indices.isEmpty()) {
+            return assignedIds;
+        }
+        String auditor = auditorAware.getCurrentAuditor().orElse(null);
+        LocalDateTime now = LocalDateTime.now();
+        StringBuilder sql = new StringBuilder(MERGE_PREFIX);
+        List<Object> args = new ArrayList<>(indices.size() * 8 + 4);
+        for (int i = 0; i < indices.size(); i++) {
+            UserRequestDTO request = requests.get(indices.get(i));
+            Long id = idFor.apply(indices.get(i));
+            assignedIds.put(request.getIdempotencyKey(), id);
+            sql.append(i == 0 ? "" : ", ").append(MERGE_ROW);
+            args.add(id);
+            args.add(request.getIdempotencyKey());
+            args.add(request.getUserName());
+            args.add(request.getEmail());
+            args.add(request.getPassword());
+            args.add(request.getDateOfBirth());
+            args.add(request.getDateOfLeaving());
+            args.add(request.getPostalCode());
+        }
+        sql.append(MERGE_SUFFIX);
+        args.add(auditor);
+        args.add(now);
+        args.add(auditor);
+        args.add(now);
+        jdbcTemplate.update(sql.toString(), args.toArray());
+        return assignedIds;
+    }
+
+    private BatchItemResultDTO conflict(int index, UserRequestDTO request, DataIntegrityViolationException ex) {
+        String constraint = ConstraintUtil.violatedConstraint(ex, User.UK_EMAIL, User.UK_USERNAME);
+        String message = User.UK_EMAIL.equals(constraint) ? "User already exists with email: " + request.getEmail()
+                : User.UK_USERNAME.equals(constraint) ? "User already exists with username: " + request.getUserName()
+                : "Conflicts with a concurrently created user";
+        return new BatchItemResultDTO(index, CONFLICT, null, request.getIdempotencyKey(), List.of(message), null);
+    }
+
+    private List<String> validate(UserRequestDTO request) {
+        if (request == null) {
+            return List.of("Item is required");
+        }
+        Set<ConstraintViolation<UserRequestDTO>> violations = validator.validate(request);
+        List<String> errors = new ArrayList<>(violations.size());
+        for (ConstraintViolation<UserRequestDTO> violation : violations) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        return errors;
+    }
+
+    private BatchResponseDTO summarize(BatchItemResultDTO[] results) {
+        int created = 0, existing = 0, conflict = 0, invalid = 0;
+        for (BatchItemResultDTO result : results) {
+            switch (result.getStatus()) {
+                case CREATED -> created++;
+                case EXISTING -> existing++;
+                case CONFLICT -> conflict++;
+                default -> invalid++;
+            }
+        }
+        return new BatchResponseDTO(created, existing, conflict, invalid, Arrays.asList(results));
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(TransactionTemplate transactionTemplate, List<UserRequestDTO> requests, List<Integer> indices,
+                   BatchItemResultDTO[] results, BatchState state);
+    }
+
+    /**
+     * What a committed chunk created, merged into the batch state only after commit.
+     */
+    private static final class ChunkOutcome {
+        private final List<BatchItemResultDTO> results = new ArrayList<>();
+        private final List<User> created = new ArrayList<>();
+        private final Map<String, Long> createdKeys = new HashMap<>();
+        private final Set<String> emails = new HashSet<>();
+        private final Set<String> userNames = new HashSet<>();
+    }
+
+    /**
+     * Keys, emails and user names created by earlier chunks of the same request.
+     */
+    private static final class BatchState {
+        private final Map<String, Long> createdKeys = new HashMap<>();
+        private final Set<String> emails = new HashSet<>();
+        private final Set<String> userNames = new HashSet<>();
+        private int createdCount;
+
+        void merge(ChunkOutcome outcome, BatchItemResultDTO[] results) {
+            for (BatchItemResultDTO result : outcome.results) {
+                results[result.getIndex()] = result;
+            }
+            createdKeys.putAll(outcome.createdKeys);
+            emails.addAll(outcome.emails);
+            userNames.addAll(outcome.userNames);
+            createdCount += outcome.created.size();
+        }
+    }
+}
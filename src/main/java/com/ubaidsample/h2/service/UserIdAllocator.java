@@ -0,0 +1,44 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out user ids for rows written outside Hibernate (MERGE upserts, write-behind creates)
+ * with the same pooled-lo scheme as User's generator: each users_seq value v reserves the
+ * block v..v+49, so neither side can hand out an id the other one holds.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserIdAllocator {
+
+    // Must match the allocationSize of User's users_seq generator
+    private static final int BLOCK_SIZE = 50;
+    private static final String NEXT_BLOCK_SQL = "SELECT NEXT VALUE FOR users_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private long next;
+    private long blockEnd;
+
+    /**
+     * The next unused id; one sequence call per 50 ids. A reserved id that is never written
+     * is simply skipped, like ids of a rolled-back insert.
+     */
+    public synchronized long next() {
+        if (next == blockEnd) {
+            Long low = jdbcTemplate.queryForObject(NEXT_BLOCK_SQL, Long.class);
+            next = low;
+            blockEnd = low + BLOCK_SIZE;
+        }
+        return next++;
+    }
+}
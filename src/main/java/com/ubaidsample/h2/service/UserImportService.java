@@ -0,0 +1,241 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ubaidsample.h2.dto.request.UserRequestDTO;
+import com.ubaidsample.h2.dto.response.BatchItemResultDTO;
+import com.ubaidsample.h2.dto.response.BatchResponseDTO;
+import com.ubaidsample.h2.dto.response.ImportJobDTO;
+import com.ubaidsample.h2.dto.response.RejectedRowDTO;
+import com.ubaidsample.h2.exception.InvalidFileTypeException;
+import com.ubaidsample.h2.exception.MissingInputException;
+import com.ubaidsample.h2.exception.ResourceNotFoundException;
+import com.ubaidsample.h2.exception.TooManyRequestsException;
+import com.ubaidsample.h2.util.ImportReader;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports users from uploaded CSV or NDJSON files. The upload is spooled to a temporary file
+ * and read one record at a time on a background worker; every app.user.import.chunk-size
+ * records go through {@link UserBatchService} as one committed chunk, so heap use does not
+ * depend on the file size. Job progress and the first rejected rows are kept in memory.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    private static final String QUEUED = "QUEUED";
+    private static final String RUNNING = "RUNNING";
+    private static final String COMPLETED = "COMPLETED";
+    private static final String FAILED = "FAILED";
+
+    private final UserBatchService batchService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int rejectedReportSize;
+    private final int retainedJobs;
+    private final Duration retryAfter;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public UserImportService(UserBatchService batchService, ObjectMapper objectMapper,
+                             @Value("${app.user.import.chunk-size:1000}") int chunkSize,
+                             @Value("${app.user.import.rejected-report-size:1000}") int rejectedReportSize,
+                             @Value("${app.user.import.retained-jobs:100}") int retainedJobs,
+                             @Value("${app.user.import.concurrency:2}") int concurrency,
+                             @Value("${app.user.import.queue-capacity:20}") int queueCapacity,
+                             @Value("${app.user.import.retry-after:30s}") Duration retryAfter) {
+        this.batchService = batchService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.rejectedReportSize = rejectedReportSize;
+        this.retainedJobs = retainedJobs;
+        this.retryAfter = retryAfter;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "user-import-" + threadNumber.incrementAndGet()));
+    }
+
+    public ImportJobDTO submit(MultipartFile file, String format) {
+        log.info("UserImportService -> submit() called");
+        if (file == null || file.isEmpty()) {
+            throw new MissingInputException("An import file is required");
+        }
+        String importFormat = ImportReader.resolveFormat(format, file.getOriginalFilename());
+        Path spooled;
+        try {
+            spooled = Files.createTempFile("user-import-", "." + importFormat);
+            file.transferTo(spooled);
+        } catch (IOException ex) {
+            throw new InvalidFileTypeException("Could not read the uploaded file " + file.getOriginalFilename(), ex);
+        }
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), file.getOriginalFilename(), importFormat);
+        evictFinishedJobs();
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, spooled));
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.id);
+            deleteQuietly(spooled);
+            throw new TooManyRequestsException("Too many imports in progress, retry later", retryAfter.toSeconds(), ex);
+        }
+        return job.toDTO();
+    }
+
+    public ImportJobDTO findJob(String jobId) {
+        log.info("UserImportService -> findJob() called");
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("No import job found with id " + jobId);
+        }
+        return job.toDTO();
+    }
+
+    private void run(ImportJob job, Path file) {
+        job.status = RUNNING;
+        try (ImportReader<UserRequestDTO> reader = new ImportReader<>(objectMapper, file, job.format, UserRequestDTO.class)) {
+            List<UserRequestDTO> chunk = new ArrayList<>(chunkSize);
+            List<Long> rows = new ArrayList<>(chunkSize);
+            ImportReader.Row<UserRequestDTO> row;
+            while ((row = reader.next()) != null) {
+                job.rowsRead.incrementAndGet();
+                if (row.error() != null) {
+                    job.invalid.incrementAndGet();
+                    job.reject(new RejectedRowDTO(row.rowNumber(), UserBatchService.INVALID, null, List.of(row.error())));
+                    continue;
+                }
+                chunk.add(row.value());
+                rows.add(row.rowNumber());
+                if (chunk.size() == chunkSize) {
+                    write(job, chunk, rows);
+                    chunk.clear();
+                    rows.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                write(job, chunk, rows);
+            }
+            job.status = COMPLETED;
+            log.info("UserImportService -> import {} completed: {} rows read", job.id, job.rowsRead.get());
+        } catch (Exception ex) {
+            log.error("UserImportService -> import {} failed", job.id, ex);
+            job.error = ex.getMessage();
+            job.status = FAILED;
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            deleteQuietly(file);
+        }
+    }
+
+    private void write(ImportJob job, List<UserRequestDTO> chunk, List<Long> rows) {
+        BatchResponseDTO response = batchService.saveAll(chunk);
+        job.created.addAndGet(response.getCreated());
+        job.existing.addAndGet(response.getExisting());
+        job.conflict.addAndGet(response.getConflict());
+        job.invalid.addAndGet(response.getInvalid());
+        for (BatchItemResultDTO result : response.getResults()) {
+            if (UserBatchService.INVALID.equals(result.getStatus()) || UserBatchService.CONFLICT.equals(result.getStatus())) {
+                job.reject(new RejectedRowDTO(rows.get(result.getIndex()), result.getStatus(),
+                        result.getIdempotencyKey(), result.getErrors()));
+            }
+        }
+    }
+
+    private void evictFinishedJobs() {
+        if (jobs.size() < retainedJobs) {
+            return;
+        }
+        // Oldest finished jobs go first; running jobs are never dropped
+        Iterator<ImportJob> finished = jobs.values().stream()
+                .filter(job -> job.finishedAt != null)
+                .sorted((a, b) -> a.finishedAt.compareTo(b.finishedAt))
+                .iterator();
+        while (jobs.size() >= retainedJobs && finished.hasNext()) {
+            jobs.remove(finished.next().id);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("UserImportService -> could not delete {}", file, ex);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private final class ImportJob {
+        private final String id;
+        private final String fileName;
+        private final String format;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong created = new AtomicLong();
+        private final AtomicLong existing = new AtomicLong();
+        private final AtomicLong conflict = new AtomicLong();
+        private final AtomicLong invalid = new AtomicLong();
+        private final List<RejectedRowDTO> rejectedRows = new ArrayList<>();
+        private volatile boolean rejectedRowsTruncated;
+        private volatile String status = QUEUED;
+        private volatile String error;
+        private volatile LocalDateTime finishedAt;
+
+        private ImportJob(String id, String fileName, String format) {
+            this.id = id;
+            this.fileName = fileName;
+            this.format = format;
+        }
+
+        private void reject(RejectedRowDTO row) {
+            synchronized (rejectedRows) {
+                if (rejectedRows.size() < rejectedReportSize) {
+                    rejectedRows.add(row);
+                } else {
+                    rejectedRowsTruncated = true;
+                }
+            }
+        }
+
+        private ImportJobDTO toDTO() {
+            List<RejectedRowDTO> rejected;
+            synchronized (rejectedRows) {
+                rejected = List.copyOf(rejectedRows);
+            }
+            return new ImportJobDTO(id, status, fileName, format, rowsRead.get(), created.get(), existing.get(),
+                    conflict.get(), invalid.get(), rejected, rejectedRowsTruncated, error, submittedAt, finishedAt);
+        }
+    }
+}
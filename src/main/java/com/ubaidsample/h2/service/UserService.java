@@ -7,122 +7,206 @@
 
 package com.ubaidsample.h2.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ubaidsample.h2.dto.common.AuditHistoryDTO;
+import com.ubaidsample.h2.dto.common.FilterPlanCache;
+import com.ubaidsample.h2.dto.common.GenericSpecification;
 import com.ubaidsample.h2.dto.request.PageRequestDTO;
 import com.ubaidsample.h2.dto.request.UserPartialUpdateRequestDTO;
 import com.ubaidsample.h2.dto.request.UserRequestDTO;
+import com.ubaidsample.h2.dto.request.UserStatusRequestDTO;
+import com.ubaidsample.h2.dto.response.BulkUpdateResponseDTO;
+import com.ubaidsample.h2.dto.response.MultiGetResponseDTO;
 import com.ubaidsample.h2.dto.response.PageResponseDTO;
+import com.ubaidsample.h2.dto.response.StreamResponseDTO;
 import com.ubaidsample.h2.dto.response.UserResponseDTO;
 import com.ubaidsample.h2.entity.User;
+import com.ubaidsample.h2.exception.BatchLimitExceededException;
+import com.ubaidsample.h2.exception.MissingInputException;
+import com.ubaidsample.h2.exception.PreconditionFailedException;
 import com.ubaidsample.h2.exception.ResourceAlreadyExistsException;
 import com.ubaidsample.h2.exception.ResourceNotFoundException;
 import com.ubaidsample.h2.repository.UserRepository;
+import com.ubaidsample.h2.util.CacheUtil;
+import com.ubaidsample.h2.util.ConstraintUtil;
+import com.ubaidsample.h2.util.ETagUtil;
+import com.ubaidsample.h2.util.ExportWriter;
 import com.ubaidsample.h2.util.MapperUtil;
+import com.ubaidsample.h2.util.SoftDeleteUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.modelmapper.ModelMapper;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
+    private static final String SET_DELETED_BY_IDS_SQL = "UPDATE users SET is_deleted = ?, deleted_date = ?, updated_by = ?,"
+            + " updated_date = ?, version = version + 1 WHERE is_deleted <> ? AND user_id = ANY(?)";
+
     private final UserRepository repository;
 
-    private final ModelMapper modelMapper;
+    private final EntityManager entityManager;
 
-    @Transactional
-    public UserResponseDTO save(UserRequestDTO request) {
-        log.info("UserService -> save() called with idempotencyKey={}", request.getIdempotencyKey());
-        // Check if this idempotency key was already processed
-        return findByIdempotencyKey(request);
+    private final PageCountCache pageCountCache;
 
-    }
+    private final FilterPlanCache filterPlanCache;
+
+    private final SearchIndexService searchIndexService;
+
+    private final ObjectMapper objectMapper;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final IdempotencyStore idempotencyStore;
+
+    private final AvailabilityService availabilityService;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final AuditorAware<String> auditorAware;
+
+    private final QueryShapeAdvisor queryShapeAdvisor;
+
+    @Value("${app.user.multi-get.max-ids:1000}")
+    private int multiGetMaxIds;
+
+    @Value("${app.user.multi-get.chunk-size:100}")
+    private int multiGetChunkSize;
+
+    @Value("${app.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Value("${app.user.find-all.chunk-size:500}")
+    private int findAllChunkSize;
+
+    @Value("${app.user.find-all.max-rows:10000}")
+    private int findAllMaxRows;
 
-    private UserResponseDTO findByIdempotencyKey(UserRequestDTO request) {
-        return repository.findByIdempotencyKey(request.getIdempotencyKey())
-                .map(user -> {
-                    log.info("Returning existing user for idempotencyKey={}", request.getIdempotencyKey());
-                    return modelMapper.map(user, UserResponseDTO.class);
-                })
-                .orElseGet(() -> saveNewUser(request));
+    public UserResponseDTO save(UserRequestDTO request) {
+        log.info("UserService -> save() called with idempotencyKey={}", request.getIdempotencyKey());
+        // Recent keys are answered from memory; new keys go straight to the insert and a replay
+        // older than the store is recognised by the unique constraint instead of a lookup per create
+        return idempotencyStore.execute(request.getIdempotencyKey(), () -> {
+            try {
+                return new TransactionTemplate(transactionManager).execute(status -> saveNewUser(request));
+            } catch (DataIntegrityViolationException ex) {
+                return handleConstraintViolation(request, ex);
+            }
+        });
     }
 
     private UserResponseDTO saveNewUser(UserRequestDTO request) {
         // Convert the DTO to the entity
-        User entity = modelMapper.map(request, User.class);
-        try {
-            // Save the new data
-            User response = repository.saveAndFlush(entity);
-            // Convert the entity to the DTO
-            return modelMapper.map(response, UserResponseDTO.class);
-        } catch (DataIntegrityViolationException ex) {
-            return handleConstraintViolation(request, ex);
-        }
+        User entity = MapperUtil.map(request, User.class);
+        // Save the new data
+        User response = repository.saveAndFlush(entity);
+        // A new row has no tokens yet, so nothing needs deleting first
+        searchIndexService.indexNew(List.of(response));
+        availabilityService.register(response.getUserName(), response.getEmail());
+        pageCountCache.evict(User.class);
+        // Convert the entity to the DTO
+        return MapperUtil.map(response, UserResponseDTO.class);
     }
 
+    /**
+     * Runs after the failed transaction has rolled back. A replayed key may trip the email or
+     * username index before the idempotency one, so the stored key is looked up first.
+     */
     private UserResponseDTO handleConstraintViolation(UserRequestDTO request, DataIntegrityViolationException ex) {
-        Throwable rootCause = ExceptionUtils.getRootCause(ex);
-        String constraintName = null;
-        if (rootCause instanceof org.hibernate.exception.ConstraintViolationException hibernateCve) {
-            constraintName = hibernateCve.getConstraintName();
-
-            /* else if (rootCause instanceof java.sql.SQLIntegrityConstraintViolationException sqlCve) {
-                // For MySQL: parse SQL message or vendor error code
-                constraintName = extractConstraintNameFromMessage(sqlCve.getMessage());
-
-            } else if (rootCause instanceof org.postgresql.util.PSQLException pgEx) {
-                // For Postgres: use ServerErrorMessage for constraint
-                if (pgEx.getServerErrorMessage() != null) {
-                    constraintName = pgEx.getServerErrorMessage().getConstraint();
-                }
-
-            } else if (rootCause instanceof oracle.jdbc.OracleDatabaseException oracleEx) {
-                // For Oracle: parse error code or message
-                constraintName = extractOracleConstraint(oracleEx);
-            }*/
-
-            if (constraintName != null) {
-                throw ex;
-            }
-            return switch (constraintName) {
-                case "uk_user_email" -> throw new ResourceAlreadyExistsException("User already exists with email: " + request.getEmail());
-                case "uk_user_username" -> throw new ResourceAlreadyExistsException("User already exists with username: " + request.getUserName());
-                case "uk_user_idempotency_key" -> repository.findByIdempotencyKey(request.getIdempotencyKey())
-                        .map(user -> {
-                            log.warn("Concurrent idempotent request detected; returning original result for key={}", request.getIdempotencyKey());
-                            return modelMapper.map(user, UserResponseDTO.class);
-                        })
-                        .orElseThrow(() -> ex);
-                default -> throw ex;
-            };
+        Optional<User> existing = repository.findByIdempotencyKey(request.getIdempotencyKey());
+        if (existing.isPresent()) {
+            log.info("Returning existing user for idempotencyKey={}", request.getIdempotencyKey());
+            return MapperUtil.map(existing.get(), UserResponseDTO.class);
+        }
+        // H2 names the backing index rather than the constraint, so match on the whole cause chain
+        String constraintName = ConstraintUtil.violatedConstraint(ex, User.UK_EMAIL, User.UK_USERNAME);
+        if (User.UK_EMAIL.equals(constraintName)) {
+            throw new ResourceAlreadyExistsException("User already exists with email: " + request.getEmail());
+        }
+        if (User.UK_USERNAME.equals(constraintName)) {
+            throw new ResourceAlreadyExistsException("User already exists with username: " + request.getUserName());
         }
         throw ex;
     }
 
-    @Transactional(readOnly = true)
-    public List<UserResponseDTO> findAll() {
+    /**
+     * Streams every active user as a JSON array, reading primary-key ranges of
+     * app.user.find-all.chunk-size rows, each in its own short read-only transaction, and
+     * stopping at app.user.find-all.max-rows. The first chunk is read up front so an empty
+     * table is still reported as 404, and so is whether the cap will cut the stream short.
+     */
+    public StreamResponseDTO findAll() {
         log.info("UserService -> findAll() called");
-        // Fetch existing
-        List<User> entity = repository.findAll();
-        if (entity.isEmpty()) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        int firstLimit = Math.min(findAllChunkSize, findAllMaxRows);
+        List<UserResponseDTO> firstChunk = findAllChunk(transactionTemplate, 0L, firstLimit);
+        if (firstChunk.isEmpty()) {
             throw new ResourceNotFoundException("Nothing found in the database");
         }
-        return entity.stream()
-                .map(user -> {
-                    // Convert the entity to the DTO
-                    return MapperUtil.map(user, UserResponseDTO.class);
-                })
-                .collect(Collectors.toList());
+        // A short first chunk is the whole table; otherwise look for a row past the cap
+        boolean truncated = firstChunk.size() == firstLimit
+                && Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                        !repository.findUserIds(PageRequest.of(findAllMaxRows, 1)).isEmpty()));
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                // The container owns the response stream; closing the generator only releases its buffers
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                List<UserResponseDTO> chunk = firstChunk;
+                int limit = firstLimit;
+                int written = 0;
+                while (true) {
+                    for (UserResponseDTO user : chunk) {
+                        generator.writeObject(user);
+                    }
+                    written += chunk.size();
+                    // Each chunk reaches the client before the next one is read
+                    generator.flush();
+                    if (chunk.size() < limit || written >= findAllMaxRows) {
+                        break;
+                    }
+                    limit = Math.min(findAllChunkSize, findAllMaxRows - written);
+                    chunk = findAllChunk(transactionTemplate, chunk.get(chunk.size() - 1).getUserId(), limit);
+                }
+                generator.writeEndArray();
+            }
+        };
+        return new StreamResponseDTO(body, truncated);
+    }
+
+    private List<UserResponseDTO> findAllChunk(TransactionTemplate transactionTemplate, Long afterId, int limit) {
+        return transactionTemplate.execute(status ->
+                // Convert the entity to the DTO
+                MapperUtil.mapAll(repository.findByUserIdGreaterThanOrderByUserIdAsc(
+                        afterId, Limit.of(limit)), UserResponseDTO.class));
     }
 
     @Transactional(readOnly = true)
@@ -132,31 +216,86 @@ public class UserService {
         User entity = repository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Nothing found in the database with id " + id));
         // Convert the entity to the DTO
-        return modelMapper.map(entity, UserResponseDTO.class);
+        return MapperUtil.map(entity, UserResponseDTO.class);
+    }
+
+    /**
+     * Loads many users at once: ids already in the second-level cache are served from it and
+     * the rest are read with IN queries of app.user.multi-get.chunk-size ids. Duplicate ids
+     * are answered once.
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResponseDTO findAllById(List<Long> ids) {
+        log.info("UserService -> findAllById() called with {} ids", ids == null ? 0 : ids.size());
+        if (ids == null || ids.isEmpty()) {
+            throw new MissingInputException("At least one id is required");
+        }
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.size() > multiGetMaxIds) {
+            throw new BatchLimitExceededException("At most " + multiGetMaxIds + " ids can be fetched at once, got " + distinctIds.size());
+        }
+        List<User> users = entityManager.unwrap(Session.class)
+                .byMultipleIds(User.class)
+                .withBatchSize(multiGetChunkSize)
+                .enableOrderedReturn(true)
+                .multiLoad(distinctIds);
+        List<UserResponseDTO> found = new ArrayList<>(users.size());
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < distinctIds.size(); i++) {
+            User user = users.get(i);
+            if (user == null) {
+                missing.add(distinctIds.get(i));
+            } else {
+                found.add(MapperUtil.map(user, UserResponseDTO.class));
+            }
+        }
+        return new MultiGetResponseDTO(found, missing);
+    }
+
+    /**
+     * Current ETag of the user, from its version alone.
+     */
+    @Transactional(readOnly = true)
+    public String findETag(Long id) {
+        log.info("UserService -> findETag() called");
+        // Soft-deleted users are still served by findById, so they keep their ETag
+        return SoftDeleteUtil.includeDeleted(entityManager, () -> repository.findVersionById(id))
+                .map(version -> ETagUtil.of(id, version))
+                .orElseThrow(() -> new ResourceNotFoundException("Nothing found in the database with id " + id));
     }
 
     @Transactional
-    public UserResponseDTO update(Long id, UserRequestDTO request) {
+    public UserResponseDTO update(Long id, UserRequestDTO request, String ifMatch) {
         log.info("UserService -> update() called");
         // Fetch existing
         User entity = repository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Nothing found in the database with id " + id));
+        checkIfMatch(entity, ifMatch);
+        // The idempotency key is an immutable natural id: a different one in the body is ignored
+        String idempotencyKey = entity.getIdempotencyKey();
         // Update and map all fields except password
-        modelMapper.map(request, entity);
+        MapperUtil.mapInto(request, entity);
+        entity.setIdempotencyKey(idempotencyKey);
         // Update password only if provided
         if (StringUtils.hasText(request.getPassword())) {
             entity.setPassword(request.getPassword());
         }
-        // Save the entity and convert it to the DTO
-        return modelMapper.map(repository.save(entity), UserResponseDTO.class);
+        // Flushed now so the returned version (and ETag) is the one just written
+        User saved = repository.saveAndFlush(entity);
+        searchIndexService.index(saved);
+        availabilityService.register(saved.getUserName(), saved.getEmail());
+        pageCountCache.evict(User.class);
+        // Convert the entity to the DTO
+        return MapperUtil.map(saved, UserResponseDTO.class);
     }
 
     @Transactional
-    public UserResponseDTO partialUpdate(Long id, UserPartialUpdateRequestDTO updates) {
+    public UserResponseDTO partialUpdate(Long id, UserPartialUpdateRequestDTO updates, String ifMatch) {
         log.info("UserService -> partialUpdate() called");
         // Fetch existing
         User entity = repository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Nothing found in the database with id " + id));
+        checkIfMatch(entity, ifMatch);
         // Apply updates only if they are present
         Optional.ofNullable(updates.getUserName()).ifPresent(entity::setUserName);
         Optional.ofNullable(updates.getEmail()).ifPresent(entity::setEmail);
@@ -167,8 +306,23 @@ public class UserService {
         Optional.ofNullable(updates.getDateOfBirth()).ifPresent(entity::setDateOfBirth);
         Optional.ofNullable(updates.getDateOfLeaving()).ifPresent(entity::setDateOfLeaving);
         Optional.ofNullable(updates.getPostalCode()).ifPresent(entity::setPostalCode);
-        // Save the entity and convert it to the DTO
-        return modelMapper.map(repository.save(entity), UserResponseDTO.class);
+        // Flushed now so the returned version (and ETag) is the one just written
+        User saved = repository.saveAndFlush(entity);
+        searchIndexService.index(saved);
+        availabilityService.register(saved.getUserName(), saved.getEmail());
+        pageCountCache.evict(User.class);
+        // Convert the entity to the DTO
+        return MapperUtil.map(saved, UserResponseDTO.class);
+    }
+
+    /**
+     * Rejects the write when If-Match does not name the loaded version; a concurrent update
+     * after this check still fails at flush through the version column.
+     */
+    private void checkIfMatch(User entity, String ifMatch) {
+        if (ETagUtil.matchFailed(ifMatch, ETagUtil.of(entity.getUserId(), entity.getVersion()))) {
+            throw new PreconditionFailedException("User " + entity.getUserId() + " has changed, current version is " + entity.getVersion());
+        }
     }
 
     @Transactional
@@ -179,6 +333,7 @@ public class UserService {
             user.getAuditHistoryDTO().setDeleted(true);
             user.getAuditHistoryDTO().setDeletedDate(LocalDateTime.now());
             repository.save(user);
+            pageCountCache.evict(User.class);
         });
     }
 
@@ -190,22 +345,132 @@ public class UserService {
             user.getAuditHistoryDTO().setDeleted(false);
             user.getAuditHistoryDTO().setDeletedDate(null);
             repository.save(user);
+            pageCountCache.evict(User.class);
         });
     }
 
+    @Transactional
+    public BulkUpdateResponseDTO deactivateAll(UserStatusRequestDTO request) {
+        log.info("UserService -> deactivateAll() called");
+        return new BulkUpdateResponseDTO(setDeleted(request, true));
+    }
+
+    @Transactional
+    public BulkUpdateResponseDTO activateAll(UserStatusRequestDTO request) {
+        log.info("UserService -> activateAll() called");
+        return new BulkUpdateResponseDTO(setDeleted(request, false));
+    }
+
+    /**
+     * Flips the soft-delete flag of every matching user in one UPDATE, skipping users that
+     * already have the requested status, and returns how many rows changed.
+     */
+    private int setDeleted(UserStatusRequestDTO request, boolean deleted) {
+        boolean byIds = request != null && request.getIds() != null && !request.getIds().isEmpty();
+        boolean byFilter = request != null && (StringUtils.hasText(request.getSearch())
+                || (request.getFilters() != null && !request.getFilters().isEmpty()));
+        if (byIds == byFilter) {
+            // Never fall back to "every user" when nothing was selected
+            throw new MissingInputException("Provide either ids or a search/filters, not both");
+        }
+        String auditor = auditorAware.getCurrentAuditor().orElse(null);
+        LocalDateTime now = LocalDateTime.now();
+        int affected;
+        if (byIds) {
+            // One bound array instead of one parameter per id
+            affected = jdbcTemplate.update(SET_DELETED_BY_IDS_SQL, deleted, deleted ? now : null, auditor, now, deleted,
+                    request.getIds().toArray(new Long[0]));
+            // Hibernate does not see this statement; the CriteriaUpdate below invalidates by itself
+            CacheUtil.evictAfterCommit(entityManager.getEntityManagerFactory(), User.class);
+        } else {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaUpdate<User> update = cb.createCriteriaUpdate(User.class);
+            Root<User> root = update.from(User.class);
+            Path<AuditHistoryDTO> audit = root.get("auditHistoryDTO");
+            update.set(audit.<Boolean>get("deleted"), deleted)
+                    .set(audit.<LocalDateTime>get("deletedDate"), deleted ? now : null)
+                    .set(audit.<String>get("updatedBy"), auditor)
+                    .set(audit.<LocalDateTime>get("updatedDate"), now)
+                    .set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L))
+                    .where(cb.notEqual(audit.get("deleted"), deleted),
+                            new GenericSpecification<User>(request.getSearch(), request.getFilters(), filterPlanCache)
+                                    .toPredicate(root, update, cb));
+            // Activation targets soft-deleted rows, so the live-users filter must not narrow the update
+            affected = SoftDeleteUtil.includeDeleted(entityManager, () -> entityManager.createQuery(update).executeUpdate());
+        }
+        if (affected > 0) {
+            pageCountCache.evict(User.class);
+        }
+        return affected;
+    }
+
     public PageResponseDTO<UserResponseDTO> search(PageRequestDTO pageRequest) {
         log.info("UserService -> search() called");
         PaginationService<User, UserResponseDTO> paginationService =
-                new PaginationService<>(repository, modelMapper, User.class, UserResponseDTO.class);
-        return paginationService.getPaginatedData(pageRequest);
+                new PaginationService<>(repository, entityManager, pageCountCache, filterPlanCache,
+                        User.class, UserResponseDTO.class);
+        if (!pageRequest.isIncludeDeleted()) {
+            return queryShapeAdvisor.record(User.class, pageRequest, () -> paginationService.getPaginatedData(pageRequest));
+        }
+        // One transaction so the page and count queries share the session the filter is lifted on
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return queryShapeAdvisor.record(User.class, pageRequest, () -> transactionTemplate.execute(status ->
+                SoftDeleteUtil.includeDeleted(entityManager, () -> paginationService.getPaginatedData(pageRequest))));
+    }
+
+    /**
+     * Streams every user matching the search criteria as NDJSON or CSV. Rows are read through
+     * a forward-only cursor inside a read-only transaction held for the duration of the
+     * download and written to the response as they arrive; page and size are ignored.
+     */
+    public StreamingResponseBody export(PageRequestDTO pageRequest, String format) {
+        log.info("UserService -> export() called with format={}", format);
+        // Reject unsupported formats before the response is committed
+        String exportFormat = ExportWriter.normalize(format);
+        PaginationService<User, UserResponseDTO> paginationService =
+                new PaginationService<>(repository, entityManager, pageCountCache, filterPlanCache,
+                        User.class, UserResponseDTO.class);
+        // Filters, search and sort are resolved now too, so a bad one is a 400 rather than a broken download
+        CriteriaQuery<Tuple> query = paginationService.prepareStream(pageRequest);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return outputStream -> {
+            ExportWriter writer = new ExportWriter(objectMapper, outputStream, exportFormat);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Runnable stream = () -> paginationService.streamData(query, exportFetchSize, row -> {
+                        try {
+                            writer.write(row);
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+                    if (pageRequest.isIncludeDeleted()) {
+                        SoftDeleteUtil.includeDeleted(entityManager, () -> {
+                            stream.run();
+                            return null;
+                        });
+                    } else {
+                        stream.run();
+                    }
+                });
+            } catch (UncheckedIOException ex) {
+                // Client went away mid-download; the transaction has already been rolled back
+                throw ex.getCause();
+            }
+            writer.flush();
+        };
     }
 
     @Transactional
     public void delete(Long id) {
         log.info("UserService -> delete() called");
-        if (!repository.existsById(id)) {
-            throw new ResourceNotFoundException("Nothing found in the database with id " + id);
-        }
-        repository.deleteById(id);
+        // One load by key (unfiltered, so soft-deleted users are found too) instead of existsById + deleteById
+        User entity = repository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Nothing found in the database with id " + id));
+        repository.delete(entity);
+        searchIndexService.remove(User.class, id);
+        pageCountCache.evict(User.class);
     }
 }
\ No newline at end of file
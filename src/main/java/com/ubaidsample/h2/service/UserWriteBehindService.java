@@ -0,0 +1,222 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import com.ubaidsample.h2.dto.request.UserRequestDTO;
+import com.ubaidsample.h2.dto.response.BatchItemResultDTO;
+import com.ubaidsample.h2.dto.response.BatchResponseDTO;
+import com.ubaidsample.h2.dto.response.WriteStatusDTO;
+import com.ubaidsample.h2.exception.ResourceNotFoundException;
+import com.ubaidsample.h2.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind mode of POST /api/v1/user: a validated request gets an id from
+ * {@link UserIdAllocator} and waits in a bounded queue, and one writer thread drains the
+ * queue through {@link UserBatchService#upsertAll(List, List)} so bursts are committed in
+ * large batches. A full queue is reported as 429 with Retry-After instead of blocking.
+ */
+@Slf4j
+@Service
+public class UserWriteBehindService {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String FAILED = "FAILED";
+
+    private final UserBatchService batchService;
+    private final UserIdAllocator idAllocator;
+    private final IdempotencyStore idempotencyStore;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int maxBatchSize;
+    private final int retainedStatuses;
+    private final Duration retryAfter;
+    private final Map<Long, PendingWrite> statuses = new ConcurrentHashMap<>();
+    // Completed writes in completion order, dropped first once retainedStatuses is exceeded
+    private final Queue<Long> completedOrder = new ConcurrentLinkedQueue<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "user-write-behind"));
+    private final DistributionSummary batchSizes;
+    private final Timer flushTimer;
+    private final Timer latencyTimer;
+    private final Counter rejected;
+    private volatile boolean running = true;
+
+    public UserWriteBehindService(UserBatchService batchService, UserIdAllocator idAllocator, IdempotencyStore idempotencyStore,
+                                  MeterRegistry registry,
+                                  @Value("${app.user.write-behind.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${app.user.write-behind.max-batch-size:1000}") int maxBatchSize,
+                                  @Value("${app.user.write-behind.retained-statuses:100000}") int retainedStatuses,
+                                  @Value("${app.user.write-behind.retry-after:1s}") Duration retryAfter) {
+        this.batchService = batchService;
+        this.idAllocator = idAllocator;
+        this.idempotencyStore = idempotencyStore;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.retainedStatuses = retainedStatuses;
+        this.retryAfter = retryAfter;
+        Gauge.builder("user.write-behind.queue.depth", queue, BlockingQueue::size)
+                .description("Creates waiting to be written")
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("user.write-behind.batch.size")
+                .description("Creates written per batch")
+                .register(registry);
+        this.flushTimer = Timer.builder("user.write-behind.flush")
+                .description("Time to write and commit one batch")
+                .register(registry);
+        this.latencyTimer = Timer.builder("user.write-behind.latency")
+                .description("Time from accepting a create to its batch being committed")
+                .register(registry);
+        this.rejected = Counter.builder("user.write-behind.rejected")
+                .description("Creates rejected with 429 because the queue was full")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.execute(this::drain);
+    }
+
+    public WriteStatusDTO submit(UserRequestDTO request) {
+        log.info("UserWriteBehindService -> submit() called with idempotencyKey={}", request.getIdempotencyKey());
+        PendingWrite write = new PendingWrite(idAllocator.next(), request);
+        statuses.put(write.reservedId, write);
+        if (!running || !queue.offer(write)) {
+            statuses.remove(write.reservedId);
+            rejected.increment();
+            throw new TooManyRequestsException("Write queue is full, retry later", Math.max(1, retryAfter.toSeconds()));
+        }
+        return write.toDTO();
+    }
+
+    public WriteStatusDTO findStatus(Long reservedId) {
+        log.info("UserWriteBehindService -> findStatus() called");
+        PendingWrite write = statuses.get(reservedId);
+        if (write == null) {
+            throw new ResourceNotFoundException("No pending write found with id " + reservedId);
+        }
+        return write.toDTO();
+    }
+
+    private void drain() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Whatever piled up while the previous batch was committing goes out together
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                flush(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        List<UserRequestDTO> requests = new ArrayList<>(batch.size());
+        List<Long> reservedIds = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            requests.add(write.request);
+            reservedIds.add(write.reservedId);
+        }
+        batchSizes.record(batch.size());
+        long started = System.nanoTime();
+        try {
+            BatchResponseDTO response = batchService.upsertAll(requests, reservedIds);
+            for (BatchItemResultDTO result : response.getResults()) {
+                PendingWrite write = batch.get(result.getIndex());
+                if (result.getUser() != null) {
+                    // A synchronous replay of the same key is then answered from memory
+                    idempotencyStore.remember(write.request.getIdempotencyKey(), result.getUser());
+                }
+                complete(write, result.getStatus(), result.getUserId(), result.getErrors());
+            }
+        } catch (RuntimeException ex) {
+            log.error("UserWriteBehindService -> batch of {} creates failed", batch.size(), ex);
+            for (PendingWrite write : batch) {
+                complete(write, FAILED, null, List.of(String.valueOf(ex.getMessage())));
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void complete(PendingWrite write, String status, Long userId, List<String> errors) {
+        write.userId = userId;
+        write.errors = errors;
+        write.completedAt = LocalDateTime.now();
+        write.status = status;
+        latencyTimer.record(System.nanoTime() - write.submittedNanos, TimeUnit.NANOSECONDS);
+        completedOrder.add(write.reservedId);
+        while (statuses.size() > retainedStatuses) {
+            Long oldest = completedOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            statuses.remove(oldest);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Stop accepting, then let the writer empty the queue before the datasource closes
+        running = false;
+        writer.shutdown();
+        if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("UserWriteBehindService -> {} queued creates were not written before shutdown", queue.size());
+        }
+    }
+
+    private static final class PendingWrite {
+        private final Long reservedId;
+        private final UserRequestDTO request;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final long submittedNanos = System.nanoTime();
+        private volatile String status = QUEUED;
+        private volatile Long userId;
+        private volatile List<String> errors = List.of();
+        private volatile LocalDateTime completedAt;
+
+        private PendingWrite(Long reservedId, UserRequestDTO request) {
+            this.reservedId = reservedId;
+            this.request = request;
+        }
+
+        private WriteStatusDTO toDTO() {
+            return new WriteStatusDTO(reservedId, status, userId, request.getIdempotencyKey(), errors, submittedAt, completedAt);
+        }
+    }
+}
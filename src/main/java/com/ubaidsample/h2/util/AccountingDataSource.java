@@ -0,0 +1,84 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Wraps the application DataSource so JDBC work done for an API request is added to its
+ * {@link RequestTiming}: every execute* call is one statement, and ResultSet.next() time and
+ * rows count as fetching. Connections taken outside a request are handed out unwrapped. Work
+ * is added to the timing of the thread doing it, since a session opened on the request thread
+ * keeps its connection while a streamed body is written on another thread.
+ */
+public class AccountingDataSource extends DelegatingDataSource {
+
+    public AccountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return account(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return account(super.getConnection(username, password));
+    }
+
+    private static Connection account(Connection connection) {
+        return RequestTiming.current() == null ? connection : proxy(Connection.class, connection);
+    }
+
+    private static <T> T proxy(Class<T> type, Object target) {
+        return type.cast(Proxy.newProxyInstance(AccountingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                new AccountingHandler(target)));
+    }
+
+    private record AccountingHandler(Object target) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            RequestTiming timing = RequestTiming.current();
+            boolean execute = timing != null && target instanceof Statement && method.getName().startsWith("execute");
+            boolean next = timing != null && target instanceof ResultSet && method.getName().equals("next");
+            long started = execute || next ? System.nanoTime() : 0;
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            } finally {
+                if (execute) {
+                    timing.statement(System.nanoTime() - started);
+                }
+            }
+            if (next) {
+                timing.fetch(System.nanoTime() - started, Boolean.TRUE.equals(result));
+            }
+            // Statements from the connection and result sets from statements are accounted too
+            Class<?> type = method.getReturnType();
+            if ((result instanceof Statement || result instanceof ResultSet) && type.isInterface()
+                    && (Statement.class.isAssignableFrom(type) || ResultSet.class.isAssignableFrom(type))) {
+                return proxy(type, result);
+            }
+            return result;
+        }
+    }
+}
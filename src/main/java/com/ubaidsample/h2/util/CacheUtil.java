@@ -0,0 +1,62 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Second-level cache invalidation for rows written with plain JDBC, which Hibernate never
+ * sees. Eviction runs after commit, so a concurrent read cannot re-cache the old state.
+ */
+public class CacheUtil {
+
+    private CacheUtil() {
+        super();
+    }
+
+    /**
+     * After inserts: cached query results (e.g. "no user with this email") may now be wrong,
+     * cached entities are not.
+     */
+    public static void evictQueriesAfterCommit(EntityManagerFactory entityManagerFactory) {
+        afterCommit(() -> cache(entityManagerFactory).evictQueryRegions());
+    }
+
+    /**
+     * After updates or deletes: cached rows of the entity and all cached query results.
+     */
+    public static void evictAfterCommit(EntityManagerFactory entityManagerFactory, Class<?> entityClass) {
+        afterCommit(() -> {
+            Cache cache = cache(entityManagerFactory);
+            cache.evictEntityData(entityClass);
+            cache.evictNaturalIdData(entityClass);
+            cache.evictQueryRegions();
+        });
+    }
+
+    private static Cache cache(EntityManagerFactory entityManagerFactory) {
+        return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Property-to-property mapper compiled once per source/destination pair into direct getter
+ * and setter calls (LambdaMetafactory, falling back to method handles). Mirrors the
+ * MapperUtil ModelMapper configuration: STRICT name matching, null source values skipped,
+ * nested beans copied into new (or existing) destination instances. Pairs it cannot express
+ * (type conversion, collections) are reported as not compilable.
+ */
+public final class CompiledMapper<D> {
+
+    private static final ClassValue<Map<Class<?>, Optional<CompiledMapper<?>>>> MAPPERS = new ClassValue<>() {
+        @Override
+        protected Map<Class<?>, Optional<CompiledMapper<?>>> computeValue(Class<?> sourceType) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final Supplier<D> constructor;
+    private final List<PropertyCopy> copies;
+
+    private CompiledMapper(Supplier<D> constructor, List<PropertyCopy> copies) {
+        this.constructor = constructor;
+        this.copies = copies;
+    }
+
+    /**
+     * The compiled mapper for the pair, or empty when the pair needs conversions this
+     * mapper does not perform.
+     */
+    @SuppressWarnings("unchecked")
+    public static <D> Optional<CompiledMapper<D>> of(Class<?> sourceType, Class<D> destinationType) {
+        Map<Class<?>, Optional<CompiledMapper<?>>> byDestination = MAPPERS.get(sourceType);
+        Optional<CompiledMapper<?>> mapper = byDestination.get(destinationType);
+        if (mapper == null) {
+            // Compiled outside computeIfAbsent: nested pairs may be looked up while compiling
+            mapper = compile(sourceType, destinationType);
+            byDestination.putIfAbsent(destinationType, mapper);
+        }
+        return (Optional<CompiledMapper<D>>) (Optional<?>) mapper;
+    }
+
+    public D map(Object source) {
+        D destination = constructor.get();
+        map(source, destination);
+        return destination;
+    }
+
+    public void map(Object source, Object destination) {
+        for (PropertyCopy copy : copies) {
+            copy.apply(source, destination);
+        }
+    }
+
+    private static Optional<CompiledMapper<?>> compile(Class<?> sourceType, Class<?> destinationType) {
+        if (!isBean(destinationType)) {
+            return Optional.empty();
+        }
+        List<PropertyCopy> copies = new ArrayList<>();
+        for (PropertyDescriptor destinationProperty : BeanUtils.getPropertyDescriptors(destinationType)) {
+            Method writeMethod = destinationProperty.getWriteMethod();
+            PropertyDescriptor sourceProperty = BeanUtils.getPropertyDescriptor(sourceType, destinationProperty.getName());
+            // STRICT: only properties with the same name on both sides are mapped
+            if (writeMethod == null || sourceProperty == null || sourceProperty.getReadMethod() == null) {
+                continue;
+            }
+            Class<?> sourcePropertyType = ClassUtils.resolvePrimitiveIfNecessary(sourceProperty.getPropertyType());
+            Class<?> destinationPropertyType = ClassUtils.resolvePrimitiveIfNecessary(destinationProperty.getPropertyType());
+            Function<Object, Object> getter = getter(sourceProperty.getReadMethod());
+            BiConsumer<Object, Object> setter = setter(writeMethod);
+            if (isBean(sourcePropertyType) && isBean(destinationPropertyType)) {
+                boolean selfReference = sourcePropertyType == sourceType && destinationPropertyType == destinationType;
+                if (!selfReference && of(sourcePropertyType, destinationPropertyType).isEmpty()) {
+                    return Optional.empty();
+                }
+                Method destinationReadMethod = destinationProperty.getReadMethod();
+                Function<Object, Object> destinationGetter = destinationReadMethod == null ? null : getter(destinationReadMethod);
+                copies.add(new PropertyCopy(getter, setter, destinationGetter, destinationPropertyType));
+            } else if (destinationPropertyType.isAssignableFrom(sourcePropertyType)
+                    && !Collection.class.isAssignableFrom(destinationPropertyType)
+                    && !Map.class.isAssignableFrom(destinationPropertyType)) {
+                copies.add(new PropertyCopy(getter, setter, null, null));
+            } else {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new CompiledMapper<>(constructor(destinationType), List.copyOf(copies)));
+    }
+
+    /**
+     * Application classes with a public no-args constructor are mapped property by property;
+     * JDK types, enums and arrays are copied as values.
+     */
+    private static boolean isBean(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isEnum() || type.isInterface()
+                || Modifier.isAbstract(type.getModifiers()) || type.getName().startsWith("java.")
+                || type.getName().startsWith("javax.") || type.getName().startsWith("jakarta.")) {
+            return false;
+        }
+        try {
+            return Modifier.isPublic(type.getConstructor().getModifiers());
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> Supplier<T> constructor(Class<T> type) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            MethodHandle handle = lookup.findConstructor(type, MethodType.methodType(void.class));
+            try {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                        MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class),
+                        handle,
+                        MethodType.methodType(type));
+                return (Supplier<T>) site.getTarget().invokeExact();
+            } catch (Throwable ex) {
+                return () -> {
+                    try {
+                        return (T) handle.invoke();
+                    } catch (Throwable t) {
+                        throw new IllegalStateException("Could not instantiate " + type.getSimpleName(), t);
+                    }
+                };
+            }
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(type.getSimpleName() + " needs an accessible no-args constructor to be mapped", ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Function<Object, Object> getter(Method readMethod) {
+        Class<?> owner = readMethod.getDeclaringClass();
+        MethodHandle handle = unreflect(readMethod);
+        try {
+            CallSite site = LambdaMetafactory.metafactory(MethodHandles.privateLookupIn(owner, MethodHandles.lookup()), "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(ClassUtils.resolvePrimitiveIfNecessary(readMethod.getReturnType()), owner));
+            return (Function<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable ex) {
+            return bean -> {
+                try {
+                    return handle.invoke(bean);
+                } catch (Throwable t) {
+                    throw new IllegalStateException("Could not read " + readMethod.getName() + " of " + owner.getSimpleName(), t);
+                }
+            };
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static BiConsumer<Object, Object> setter(Method writeMethod) {
+        Class<?> owner = writeMethod.getDeclaringClass();
+        MethodHandle handle = unreflect(writeMethod);
+        try {
+            CallSite site = LambdaMetafactory.metafactory(MethodHandles.privateLookupIn(owner, MethodHandles.lookup()), "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(void.class, owner, ClassUtils.resolvePrimitiveIfNecessary(writeMethod.getParameterTypes()[0])));
+            return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable ex) {
+            return (bean, value) -> {
+                try {
+                    handle.invoke(bean, value);
+                } catch (Throwable t) {
+                    throw new IllegalStateException("Could not write " + writeMethod.getName() + " of " + owner.getSimpleName(), t);
+                }
+            };
+        }
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            return MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup()).unreflect(method);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException("Could not access " + method, ex);
+        }
+    }
+
+    private record PropertyCopy(Function<Object, Object> getter, BiConsumer<Object, Object> setter,
+                                Function<Object, Object> destinationGetter, Class<?> nestedType) {
+
+        void apply(Object source, Object destination) {
+            Object value = getter.apply(source);
+            // Null source values never overwrite the destination
+            if (value == null) {
+                return;
+            }
+            if (nestedType == null) {
+                setter.accept(destination, value);
+                return;
+            }
+            CompiledMapper<?> nested = CompiledMapper.of(value.getClass(), nestedType)
+                    .orElseThrow(() -> new IllegalStateException("Cannot map " + value.getClass().getSimpleName() + " to " + nestedType.getSimpleName()));
+            Object existing = destinationGetter == null ? null : destinationGetter.apply(destination);
+            if (existing != null) {
+                nested.map(value, existing);
+            } else {
+                setter.accept(destination, nested.map(value));
+            }
+        }
+    }
+}
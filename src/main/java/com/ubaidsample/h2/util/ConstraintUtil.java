@@ -0,0 +1,42 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import java.util.Locale;
+
+public class ConstraintUtil {
+
+    private ConstraintUtil() {
+        super();
+    }
+
+    /**
+     * Finds which of the known constraints an integrity violation refers to, or null.
+     * H2 reports the backing index (e.g. "PUBLIC.UK_USER_EMAIL_INDEX_4 ON PUBLIC.USERS(EMAIL ...)")
+     * rather than the bare constraint name, so every message in the cause chain is searched.
+     */
+    public static String violatedConstraint(Throwable ex, String... knownConstraints) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            String text = cause.getMessage();
+            if (cause instanceof org.hibernate.exception.ConstraintViolationException hibernateCve
+                    && hibernateCve.getConstraintName() != null) {
+                text = hibernateCve.getConstraintName() + " " + text;
+            }
+            if (text == null) {
+                continue;
+            }
+            String lower = text.toLowerCase(Locale.ROOT);
+            for (String constraint : knownConstraints) {
+                if (lower.contains(constraint.toLowerCase(Locale.ROOT))) {
+                    return constraint;
+                }
+            }
+        }
+        return null;
+    }
+}
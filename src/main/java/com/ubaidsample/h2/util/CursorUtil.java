@@ -0,0 +1,66 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import com.ubaidsample.h2.exception.InvalidFilterException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class CursorUtil {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private CursorUtil() {
+        super();
+    }
+
+    /**
+     * Position of the last row of a keyset page: the sort field and direction it was
+     * produced with, the row's sort key and its primary key as a tiebreaker.
+     */
+    public record Cursor(String sortField, String sortDir, String sortValue, String id) {}
+
+    /**
+     * Encodes the last row's sort key and id into an opaque, URL-safe continuation token.
+     */
+    public static String encode(String sortField, String sortDir, Object sortValue, Object id) {
+        if (sortValue == null || id == null) {
+            throw new InvalidFilterException("Keyset pagination requires non-null values for sort field: " + sortField);
+        }
+        return String.join(".",
+                encodePart(sortField),
+                encodePart(sortDir.toLowerCase()),
+                encodePart(sortValue.toString()),
+                encodePart(id.toString()));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode(String, String, Object, Object)}.
+     */
+    public static Cursor decode(String token) {
+        String[] parts = token.split("\\.", -1);
+        if (parts.length != 4) {
+            throw new InvalidFilterException("Invalid pagination cursor");
+        }
+        try {
+            return new Cursor(decodePart(parts[0]), decodePart(parts[1]), decodePart(parts[2]), decodePart(parts[3]));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidFilterException("Invalid pagination cursor", ex);
+        }
+    }
+
+    private static String encodePart(String value) {
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodePart(String value) {
+        return new String(DECODER.decode(value), StandardCharsets.UTF_8);
+    }
+}
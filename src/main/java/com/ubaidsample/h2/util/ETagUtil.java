@@ -0,0 +1,58 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+public class ETagUtil {
+
+    private ETagUtil() {
+        super();
+    }
+
+    /**
+     * Strong entity tag of one row version, e.g. "12-3".
+     */
+    public static String of(Long id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * If-None-Match: weak comparison against a list of tags or "*".
+     */
+    public static boolean noneMatchHit(String ifNoneMatch, String etag) {
+        return anyMatch(ifNoneMatch, etag, false);
+    }
+
+    /**
+     * If-Match: strong comparison, so a weak tag never matches; null means the header was absent.
+     */
+    public static boolean matchFailed(String ifMatch, String etag) {
+        return ifMatch != null && !anyMatch(ifMatch, etag, true);
+    }
+
+    private static boolean anyMatch(String header, String etag, boolean strong) {
+        if (header == null || header.isBlank()) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                if (strong) {
+                    continue;
+                }
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -7,16 +7,51 @@
 
 package com.ubaidsample.h2.util;
 
+import com.ubaidsample.h2.annotation.Searchable;
 import com.ubaidsample.h2.exception.ResourceNotFoundException;
+import jakarta.persistence.AttributeOverride;
+import jakarta.persistence.Column;
 import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
 import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 public class EntityUtil {
 
+    private static final Map<Class<?>, Function<Object, Object>> CUSTOM_CONVERTERS = new ConcurrentHashMap<>();
+
+    private static final ClassValue<Function<Object, Object>> CONVERTERS = new ClassValue<>() {
+        @Override
+        protected Function<Object, Object> computeValue(Class<?> type) {
+            return createConverter(type);
+        }
+    };
+
+    private static final ClassValue<List<String>> SEARCHABLE_FIELDS = new ClassValue<>() {
+        @Override
+        protected List<String> computeValue(Class<?> type) {
+            return Arrays.stream(type.getDeclaredFields())
+                    .filter(f -> f.isAnnotationPresent(Searchable.class) && f.getType().equals(String.class))
+                    .map(Field::getName)
+                    .toList();
+        }
+    };
+
     /**
      * Finds the name of the @Id field for the given entity class.
      */
@@ -28,46 +63,176 @@ public class EntityUtil {
                 .orElseThrow(() -> new ResourceNotFoundException("Entity " + entityClass.getSimpleName() + " does not have a field annotated with @Id"));
     }
 
+    /**
+     * Table name from @Table, falling back to the snake_case naming Spring applies by default.
+     */
+    public static String getTableName(Class<?> entityClass) {
+        Table table = entityClass.getAnnotation(Table.class);
+        return table != null && !table.name().isEmpty() ? table.name() : toSnakeCase(entityClass.getSimpleName());
+    }
+
+    /**
+     * Column behind a (dotted) attribute path, from @AttributeOverride on the embedding field
+     * or @Column on the field itself, falling back to the default snake_case naming. Returns
+     * null for unknown paths.
+     */
+    public static String getColumnName(Class<?> entityClass, String path) {
+        Class<?> type = entityClass;
+        Field owner = null;
+        Field field = null;
+        for (String part : path.split("\\.")) {
+            owner = field;
+            field = ReflectionUtils.findField(type, part);
+            if (field == null) {
+                return null;
+            }
+            type = field.getType();
+        }
+        if (owner != null) {
+            for (AttributeOverride override : owner.getAnnotationsByType(AttributeOverride.class)) {
+                if (override.name().equals(field.getName())) {
+                    return override.column().name();
+                }
+            }
+        }
+        Column column = field.getAnnotation(Column.class);
+        return column != null && !column.name().isEmpty() ? column.name() : toSnakeCase(field.getName());
+    }
+
+    /**
+     * Whether the attribute can never be null: the @Id, a primitive, or a @Column(nullable = false).
+     * Unknown attributes, embeddables and plain fields count as nullable.
+     */
+    public static boolean isNonNullable(Class<?> entityClass, String attribute) {
+        Field field = ReflectionUtils.findField(entityClass, attribute);
+        if (field == null) {
+            return false;
+        }
+        if (field.isAnnotationPresent(Id.class) || field.getType().isPrimitive()) {
+            return true;
+        }
+        Column column = field.getAnnotation(Column.class);
+        return column != null && !column.nullable();
+    }
+
+    private static String toSnakeCase(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Finds the names of the String fields annotated with @Searchable for the given entity class.
+     */
+    public static List<String> getSearchableFieldNames(Class<?> entityClass) {
+        return SEARCHABLE_FIELDS.get(entityClass);
+    }
+
     /**
      * Converts a value (or collection of values) to the target type.
      * Supports single values and collections (lists, sets).
      */
-    @SuppressWarnings("unchecked")
     public static <T> Object convertValue(Class<T> targetType, Object value) {
 
         if (value == null) return null;
-        // Handle collections recursively
+        Function<Object, Object> converter = converterFor(targetType);
+        // Handle collections element by element
         if (value instanceof Collection<?> col) {
-            return col.stream()
-                    .map(v -> convertValue(targetType, v))
-                    .toList();
+            List<Object> converted = new ArrayList<>(col.size());
+            for (Object v : col) {
+                converted.add(converter.apply(v));
+            }
+            return converted;
         }
         // Convert single value
-        if (targetType.equals(String.class)) {
-            return value.toString();
+        return converter.apply(value);
+    }
+
+    /**
+     * Returns the single-value converter for the target type, resolved once per type.
+     * Values that already have the target type are returned as they are, and null stays null.
+     */
+    public static Function<Object, Object> converterFor(Class<?> targetType) {
+        return CONVERTERS.get(targetType);
+    }
+
+    /**
+     * Registers (or replaces) the converter used for the target type. The converter is only
+     * called for non-null values that are not already of the target type.
+     */
+    public static void registerConverter(Class<?> targetType, Function<Object, Object> converter) {
+        CUSTOM_CONVERTERS.put(targetType, converter);
+        CONVERTERS.remove(targetType);
+    }
+
+    private static Function<Object, Object> createConverter(Class<?> targetType) {
+        Class<?> boxedType = ClassUtils.resolvePrimitiveIfNecessary(targetType);
+        Function<Object, Object> convert = CUSTOM_CONVERTERS.containsKey(targetType)
+                ? CUSTOM_CONVERTERS.get(targetType)
+                : builtInConverter(boxedType);
+        return value -> value == null || boxedType.isInstance(value) ? value : convert.apply(value);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<Object, Object> builtInConverter(Class<?> type) {
+        if (type == String.class) {
+            return Object::toString;
+        }
+        if (type == Integer.class) {
+            return value -> isIntegral(value) ? Integer.valueOf(Math.toIntExact(((Number) value).longValue())) : Integer.valueOf(value.toString());
+        }
+        if (type == Long.class) {
+            return value -> isIntegral(value) ? Long.valueOf(((Number) value).longValue()) : Long.valueOf(value.toString());
+        }
+        if (type == Short.class) {
+            return value -> isIntegral(value) ? Short.valueOf(toShortExact(((Number) value).longValue())) : Short.valueOf(value.toString());
+        }
+        if (type == Double.class) {
+            return value -> value instanceof Number n ? Double.valueOf(n.doubleValue()) : Double.valueOf(value.toString());
         }
-        if (targetType.equals(Integer.class) || targetType.equals(int.class)) {
-            return Integer.valueOf(value.toString());
+        if (type == Float.class) {
+            return value -> value instanceof Number n ? Float.valueOf(n.floatValue()) : Float.valueOf(value.toString());
         }
-        if (targetType.equals(Long.class) || targetType.equals(long.class)) {
-            return Long.valueOf(value.toString());
+        if (type == Boolean.class) {
+            return value -> Boolean.valueOf(value.toString());
         }
-        if (targetType.equals(Double.class) || targetType.equals(double.class)) {
-            return Double.valueOf(value.toString());
+        if (type == BigDecimal.class) {
+            return value -> isIntegral(value) ? BigDecimal.valueOf(((Number) value).longValue()) : new BigDecimal(value.toString());
         }
-        if (targetType.equals(Float.class) || targetType.equals(float.class)) {
-            return Float.valueOf(value.toString());
+        if (type == LocalDate.class) {
+            return value -> LocalDate.parse(value.toString());
         }
-        if (targetType.equals(Boolean.class) || targetType.equals(boolean.class)) {
-            return Boolean.valueOf(value.toString());
+        if (type == LocalDateTime.class) {
+            return value -> LocalDateTime.parse(value.toString());
         }
-        if (targetType.equals(LocalDate.class)) {
-            return LocalDate.parse(value.toString());
+        if (type == Instant.class) {
+            // Numbers are epoch milliseconds, text is ISO-8601
+            return value -> value instanceof Number n ? Instant.ofEpochMilli(n.longValue()) : Instant.parse(value.toString());
         }
-        if (targetType.equals(LocalDateTime.class)) {
-            return LocalDateTime.parse(value.toString());
+        if (type == UUID.class) {
+            return value -> UUID.fromString(value.toString());
+        }
+        if (type.isEnum()) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) type;
+            return value -> {
+                String name = value.toString();
+                try {
+                    return Enum.valueOf(enumType, name);
+                } catch (IllegalArgumentException ex) {
+                    return Enum.valueOf(enumType, name.toUpperCase(Locale.ROOT));
+                }
+            };
         }
         // For unsupported or custom types, return as-is
-        return value;
+        return value -> value;
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static short toShortExact(long value) {
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new ArithmeticException("short overflow");
+        }
+        return (short) value;
     }
-}
\ No newline at end of file
+}
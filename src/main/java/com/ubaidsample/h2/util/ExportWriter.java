@@ -0,0 +1,103 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ubaidsample.h2.exception.InvalidFileTypeException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes rows one at a time as NDJSON (one JSON document per line) or CSV (header from the
+ * first row's JSON property names, nested objects flattened with dotted names).
+ */
+public class ExportWriter {
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    private final ObjectMapper objectMapper;
+    private final Writer writer;
+    private final boolean csv;
+    private List<String> header;
+
+    public ExportWriter(ObjectMapper objectMapper, OutputStream outputStream, String format) {
+        this.objectMapper = objectMapper;
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        this.csv = CSV.equals(normalize(format));
+    }
+
+    /**
+     * Lower-cased format, rejecting anything other than ndjson or csv.
+     */
+    public static String normalize(String format) {
+        String normalized = format == null ? NDJSON : format.toLowerCase();
+        if (!NDJSON.equals(normalized) && !CSV.equals(normalized)) {
+            throw new InvalidFileTypeException("Unsupported export format: " + format + ". Supported formats are ndjson and csv");
+        }
+        return normalized;
+    }
+
+    public void write(Object row) throws IOException {
+        if (!csv) {
+            writer.write(objectMapper.writeValueAsString(row));
+            writer.write('\n');
+            return;
+        }
+        Map<String, String> columns = new LinkedHashMap<>();
+        flatten("", objectMapper.valueToTree(row), columns);
+        if (header == null) {
+            header = List.copyOf(columns.keySet());
+            writeCsvLine(header);
+        }
+        writeCsvLine(header.stream().map(columns::get).toList());
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void flatten(String prefix, JsonNode node, Map<String, String> columns) {
+        if (node.isObject()) {
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                flatten(prefix.isEmpty() ? field.getKey() : prefix + "." + field.getKey(), field.getValue(), columns);
+            }
+        } else {
+            columns.put(prefix, node.isNull() ? null : node.isValueNode() ? node.asText() : node.toString());
+        }
+    }
+
+    private void writeCsvLine(List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
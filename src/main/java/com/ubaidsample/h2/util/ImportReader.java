@@ -0,0 +1,178 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ubaidsample.h2.exception.InvalidFileTypeException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads an import file one record at a time, as NDJSON (one JSON object per line) or CSV
+ * (header row with the same property names as the JSON body). Records that cannot be parsed
+ * are returned with an error instead of stopping the read, so only one record is ever held.
+ */
+public class ImportReader<T> implements Closeable {
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+    private final BufferedReader reader;
+    private final boolean csv;
+    private List<String> header;
+    private long rowNumber;
+
+    public ImportReader(ObjectMapper objectMapper, Path file, String format, Class<T> type) throws IOException {
+        this.objectMapper = objectMapper;
+        this.type = type;
+        this.csv = CSV.equals(format);
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Format from the explicit parameter, or from the file extension when none is given.
+     */
+    public static String resolveFormat(String format, String fileName) {
+        String candidate = format;
+        if (candidate == null || candidate.isBlank()) {
+            String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+            candidate = name.endsWith(".csv") ? CSV : name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : null;
+        }
+        candidate = candidate == null ? null : candidate.toLowerCase(Locale.ROOT);
+        if (!NDJSON.equals(candidate) && !CSV.equals(candidate)) {
+            throw new InvalidFileTypeException("Unsupported import format for file " + fileName + ". Supported formats are ndjson and csv");
+        }
+        return candidate;
+    }
+
+    /**
+     * The next record, or null at the end of the file.
+     */
+    public Row<T> next() throws IOException {
+        return csv ? nextCsv() : nextNdjson();
+    }
+
+    private Row<T> nextNdjson() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        rowNumber++;
+        try {
+            return new Row<>(rowNumber, objectMapper.readValue(line, type), null);
+        } catch (JsonProcessingException ex) {
+            return new Row<>(rowNumber, null, "Malformed JSON: " + ex.getOriginalMessage());
+        }
+    }
+
+    private Row<T> nextCsv() throws IOException {
+        if (header == null) {
+            List<String> names = readCsvRecord();
+            if (names == null) {
+                return null;
+            }
+            header = new ArrayList<>(names.size());
+            for (String name : names) {
+                // Tolerate a UTF-8 byte order mark and padded column names
+                header.add(name.replace("\uFEFF", "").trim());
+            }
+        }
+        List<String> values;
+        do {
+            values = readCsvRecord();
+            if (values == null) {
+                return null;
+            }
+        } while (values.size() == 1 && values.get(0).isEmpty());
+        rowNumber++;
+        if (values.size() != header.size()) {
+            return new Row<>(rowNumber, null, "Expected " + header.size() + " columns but found " + values.size());
+        }
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            // Empty cells are missing values, so required-field validation reports them
+            properties.put(header.get(i), values.get(i).isEmpty() ? null : values.get(i));
+        }
+        try {
+            return new Row<>(rowNumber, objectMapper.convertValue(properties, type), null);
+        } catch (IllegalArgumentException ex) {
+            return new Row<>(rowNumber, null, "Invalid value: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * One RFC 4180 record; quoted values may contain commas, doubled quotes and line breaks.
+     */
+    private List<String> readCsvRecord() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            char ch = (char) c;
+            if (quoted) {
+                if (ch == '"') {
+                    reader.mark(1);
+                    int nextChar = reader.read();
+                    if (nextChar == '"') {
+                        value.append('"');
+                    } else {
+                        quoted = false;
+                        if (nextChar != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    value.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (ch == '\n') {
+                break;
+            } else if (ch != '\r') {
+                value.append(ch);
+            }
+            c = reader.read();
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * A parsed record (value set) or an unparseable one (error set), with its 1-based row number.
+     */
+    public record Row<T>(long rowNumber, T value, String error) {
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -34,8 +35,34 @@ public class MapperUtil {
         super();
     }
 
+    /**
+     * Maps through the compiled mapper of the pair; pairs that need ModelMapper's type
+     * conversions go through the equally configured ModelMapper instance.
+     */
     public static <S, D> D map(final S source, Class<D> destination) {
-        return modelMapper.map(source, destination);
+        if (source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+        Optional<CompiledMapper<D>> mapper = CompiledMapper.of(source.getClass(), destination);
+        return RequestTiming.mapping(() -> mapper.isPresent() ? mapper.get().map(source) : modelMapper.map(source, destination));
+    }
+
+    /**
+     * Copies the non-null properties of the source onto an existing destination.
+     */
+    public static <S, D> void mapInto(final S source, D destination) {
+        if (source == null || destination == null) {
+            throw new IllegalArgumentException("source and destination cannot be null");
+        }
+        Optional<? extends CompiledMapper<?>> mapper = CompiledMapper.of(source.getClass(), destination.getClass());
+        RequestTiming.mapping(() -> {
+            if (mapper.isPresent()) {
+                mapper.get().map(source, destination);
+            } else {
+                modelMapper.map(source, destination);
+            }
+            return null;
+        });
     }
 
     public static <S, D> List<D> mapAll(final Collection<S> source, Class<D> destination) {
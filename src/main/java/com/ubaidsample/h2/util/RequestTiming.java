@@ -0,0 +1,125 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Where the time of one API request went: JDBC statements (round trips), rows fetched and
+ * time spent in the database, in DTO mapping and in JSON serialization. Bound to the request
+ * thread by ServerTimingFilter and to the thread writing a streamed body by
+ * StreamTimingInterceptor; background writes are not attributed to the request.
+ */
+public final class RequestTiming {
+
+    public static final String HEADER = "Server-Timing";
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startedNanos = System.nanoTime();
+    private long statements;
+    private long rows;
+    private long dbNanos;
+    private long mappingNanos;
+    private long serializationNanos;
+    // Nested mapping calls are timed once, by the outermost one
+    private int mappingDepth;
+
+    private RequestTiming() {
+        super();
+    }
+
+    public static RequestTiming start() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * The timing of the request running on this thread, or null.
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs entity/DTO mapping and adds its duration to the current request, if any.
+     */
+    public static <T> T mapping(Supplier<T> work) {
+        RequestTiming timing = CURRENT.get();
+        if (timing == null || timing.mappingDepth > 0) {
+            return work.get();
+        }
+        timing.mappingDepth++;
+        long started = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            timing.mappingNanos += System.nanoTime() - started;
+            timing.mappingDepth--;
+        }
+    }
+
+    public void statement(long nanos) {
+        statements++;
+        dbNanos += nanos;
+    }
+
+    public void fetch(long nanos, boolean row) {
+        dbNanos += nanos;
+        if (row) {
+            rows++;
+        }
+    }
+
+    public void serialization(long nanos) {
+        serializationNanos += nanos;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getDbNanos() {
+        return dbNanos;
+    }
+
+    public long getMappingNanos() {
+        return mappingNanos;
+    }
+
+    public long getSerializationNanos() {
+        return serializationNanos;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startedNanos;
+    }
+
+    /**
+     * Server-Timing value, durations in milliseconds.
+     */
+    public String toHeader() {
+        return String.format(Locale.ROOT, "db;dur=%.2f;desc=\"%d statements, %d rows\", mapping;dur=%.2f,"
+                        + " serialization;dur=%.2f, total;dur=%.2f",
+                millis(dbNanos), statements, rows, millis(mappingNanos), millis(serializationNanos), millis(getElapsedNanos()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+public class SearchTokenUtil {
+
+    public static final int TOKEN_LENGTH = 3;
+
+    public static final char LIKE_ESCAPE = '\\';
+
+    // Each trigram is its own index lookup; a few spread over the term already narrow candidates to a few rows
+    private static final int MAX_QUERY_TOKENS = 3;
+
+    private SearchTokenUtil() {
+        super();
+    }
+
+    /**
+     * All distinct lower-cased trigrams of a field value, as stored in the index.
+     */
+    public static Set<String> indexTokens(String value) {
+        if (value == null || value.length() < TOKEN_LENGTH) {
+            return Collections.emptySet();
+        }
+        String normalized = value.toLowerCase(Locale.ROOT);
+        Set<String> tokens = new LinkedHashSet<>();
+        for (int i = 0; i + TOKEN_LENGTH <= normalized.length(); i++) {
+            tokens.add(normalized.substring(i, i + TOKEN_LENGTH));
+        }
+        return tokens;
+    }
+
+    /**
+     * Trigrams a matching row must contain, empty when the term is too short to use the index.
+     */
+    public static List<String> queryTokens(String term) {
+        List<String> tokens = List.copyOf(indexTokens(term));
+        if (tokens.size() <= MAX_QUERY_TOKENS) {
+            return tokens;
+        }
+        // First, last and evenly spaced ones between overlap least, so together they are the most selective
+        List<String> picked = new ArrayList<>(MAX_QUERY_TOKENS);
+        for (int i = 0; i < MAX_QUERY_TOKENS; i++) {
+            picked.add(tokens.get(i * (tokens.size() - 1) / (MAX_QUERY_TOKENS - 1)));
+        }
+        return picked;
+    }
+
+    /**
+     * LIKE pattern for values containing the term, with % and _ matched literally (escaped with
+     * {@link #LIKE_ESCAPE}) just as the trigram index treats them.
+     */
+    public static String containsPattern(String term) {
+        StringBuilder pattern = new StringBuilder(term.length() + 2).append('%');
+        for (char c : term.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import com.ubaidsample.h2.entity.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.util.function.Supplier;
+
+/**
+ * Opt-out of the live-users filter that Hibernate enables on every session. The filter is
+ * session state, so the work must run inside a transaction for the change to reach its queries.
+ */
+public class SoftDeleteUtil {
+
+    private SoftDeleteUtil() {
+        super();
+    }
+
+    /**
+     * Runs the work with soft-deleted users visible to queries, then restores the filter.
+     */
+    public static <T> T includeDeleted(EntityManager entityManager, Supplier<T> work) {
+        Session session = entityManager.unwrap(Session.class);
+        if (session.getEnabledFilter(User.LIVE_FILTER) == null) {
+            return work.get();
+        }
+        session.disableFilter(User.LIVE_FILTER);
+        try {
+            return work.get();
+        } finally {
+            session.enableFilter(User.LIVE_FILTER);
+        }
+    }
+}
@@ -6,4 +6,4 @@ INSERT INTO users (user_id, idempotency_key, user_name, email, password, date_of
 
 INSERT INTO users (user_id, idempotency_key, user_name, email, password, date_of_birth, date_of_leaving, postal_code, created_by, created_date, updated_by, updated_date) VALUES (4, 'IDEMP-004', 'john.miller', 'jm@example.com', 'pass123', '1996-09-05', '2024-12-31', 56003, 'system', CURRENT_TIMESTAMP, 'system', CURRENT_TIMESTAMP);
 
-ALTER TABLE USERS ALTER COLUMN user_id RESTART WITH 5;
\ No newline at end of file
+ALTER SEQUENCE users_seq RESTART WITH 5;
\ No newline at end of file
@@ -0,0 +1,781 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.ubaidsample.h2.dto.request.FilterRequestDTO;
+import com.ubaidsample.h2.dto.request.PageRequestDTO;
+import com.ubaidsample.h2.dto.request.UserPartialUpdateRequestDTO;
+import com.ubaidsample.h2.dto.request.UserRequestDTO;
+import com.ubaidsample.h2.dto.request.UserStatusRequestDTO;
+import com.ubaidsample.h2.entity.User;
+import com.ubaidsample.h2.repository.UserRepository;
+import com.ubaidsample.h2.service.AvailabilityService;
+import com.ubaidsample.h2.service.SearchIndexService;
+import com.ubaidsample.h2.service.UserArchiveService;
+import com.ubaidsample.h2.util.RequestTiming;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Query-count regression suite for every UserController endpoint. H2 is seeded with
+ * querycount.dataset-size users, each endpoint is called repeatedly and the Server-Timing
+ * header of every call is checked against the JDBC statements and rows the endpoint needs on
+ * the request thread; streamed bodies are checked the same way through the user.stream.*
+ * meters, and the p99 of the total duration against querycount.max-p99. An added N+1, an
+ * extra flush or a query that starts reading the whole table fails the build.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"dev", "querycount"})
+class UserControllerQueryCountTests {
+
+    private static final String BASE = "/api/v1/user";
+    private static final Pattern DB_DESC = Pattern.compile("desc=\"(\\d+) statements, (\\d+) rows\"");
+    private static final Pattern TOTAL = Pattern.compile("total;dur=([0-9.]+)");
+    private static final String SEED_PREFIX = "qc-user-";
+    private static final String LIVE_COUNT_SQL = "SELECT COUNT(*) FROM users WHERE is_deleted = FALSE";
+    private static final String SEQUENCE_SQL = "SELECT base_value, increment FROM information_schema.sequences"
+            + " WHERE sequence_name = 'USERS_SEQ'";
+    private static final int WARM_UP = 3;
+    // Fewer samples would make the nearest-rank p99 simply the slowest call
+    private static final int MIN_P99_SAMPLES = 100;
+    private static final int SEED_CHUNK_SIZE = 500;
+    private static final int BATCH_SIZE = 10;
+    private static final int PAGE_SIZE = 10;
+    // Live seeded users matching a "qc-user-0000<digit>" search: ten names, one soft-deleted
+    private static final int TERM_MATCHES = 9;
+    private static final Duration ASYNC_TIMEOUT = Duration.ofSeconds(30);
+
+    // Seeded once per class and only ever read; tests that write make fixtures of their own
+    private static List<Seeded> users;
+    private static Long archivedId;
+    // A users_seq call hands out the block of ids starting at its value, so a block starts at
+    // every id congruent to blockOffset modulo blockSize
+    private static long blockSize;
+    private static long blockOffset;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository repository;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${querycount.iterations:100}")
+    private int iterations;
+
+    @Value("${querycount.max-p99:500ms}")
+    private Duration maxP99;
+
+    @Value("${app.user.find-all.chunk-size:500}")
+    private int findAllChunkSize;
+
+    @Value("${app.user.find-all.max-rows:10000}")
+    private int findAllMaxRows;
+
+    private record Seeded(Long userId, String userName) {}
+
+    private record Cost(long statements, long rows) {}
+
+    /**
+     * Seeds the table unless an earlier class in this context already did, then reads the
+     * live seeded users back.
+     */
+    @BeforeAll
+    static void seed(@Autowired UserRepository repository, @Autowired SearchIndexService searchIndexService,
+                     @Autowired AvailabilityService availabilityService, @Autowired UserArchiveService archiveService,
+                     @Autowired JdbcTemplate jdbcTemplate, @Autowired PlatformTransactionManager transactionManager,
+                     @Value("${querycount.dataset-size:1000}") int datasetSize) {
+        Integer seeded = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE user_name LIKE ?",
+                Integer.class, SEED_PREFIX + "%");
+        if (seeded == null || seeded == 0) {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            for (int from = 0; from < datasetSize; from += SEED_CHUNK_SIZE) {
+                List<User> chunk = new ArrayList<>();
+                for (int n = from; n < Math.min(from + SEED_CHUNK_SIZE, datasetSize); n++) {
+                    User user = newEntity(String.format(SEED_PREFIX + "%06d", n), 10000 + n % 100);
+                    user.setDateOfBirth(LocalDate.of(1990, 1, 1).plusDays(n % 3650));
+                    // Every tenth user is soft-deleted so the live-users filter has rows to skip
+                    user.getAuditHistoryDTO().setDeleted(n % 10 == 9);
+                    chunk.add(user);
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    repository.saveAll(chunk);
+                    searchIndexService.indexNew(chunk);
+                });
+            }
+            availabilityService.rebuild();
+            // Moves the import.sql user that has left long ago into users_archive
+            archiveService.archive();
+        }
+        users = jdbcTemplate.query("SELECT user_id, user_name FROM users WHERE user_name LIKE ? AND is_deleted = FALSE"
+                        + " ORDER BY user_id", (rs, row) -> new Seeded(rs.getLong(1), rs.getString(2)), SEED_PREFIX + "%");
+        archivedId = jdbcTemplate.queryForObject("SELECT MIN(user_id) FROM users_archive", Long.class);
+        Map<String, Object> sequence = jdbcTemplate.queryForMap(SEQUENCE_SQL);
+        blockSize = ((Number) sequence.get("INCREMENT")).longValue();
+        blockOffset = Math.floorMod(((Number) sequence.get("BASE_VALUE")).longValue(), blockSize);
+        assertThat(users).as("seeded live users").isNotEmpty();
+        assertThat(archivedId).as("archived user").isNotNull();
+    }
+
+    @Test
+    void save() throws Exception {
+        // INSERT and the token INSERT batch, plus the users_seq call that starts each block of ids
+        measure("POST /", i -> mockMvc.perform(post(BASE)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(newUser("create", i))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.user_id").value(notNullValue()))
+                .andExpect(jsonPath("$.user_name").value("qc-create-" + i))
+                .andReturn(), result -> {
+            long blocks = blocksStarted(ids(result, "$.user_id"));
+            return new Cost(2 + blocks, blocks);
+        });
+    }
+
+    @Test
+    void saveAsync() throws Exception {
+        // Only the reserved id is taken on the request thread
+        List<String> locations = new ArrayList<>();
+        measure("POST /?async=true", i -> {
+            MvcResult result = mockMvc.perform(post(BASE)
+                            .param("async", "true")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(json(newUser("async", i))))
+                    .andExpect(status().isAccepted())
+                    .andExpect(jsonPath("$.reservedId").value(notNullValue()))
+                    .andExpect(jsonPath("$.idempotencyKey").value("qc-async-" + i))
+                    .andReturn();
+            locations.add(result.getResponse().getHeader(HttpHeaders.LOCATION));
+            return result;
+        }, result -> {
+            long blocks = blocksStarted(ids(result, "$.reservedId"));
+            return new Cost(blocks, blocks);
+        });
+        awaitDone(locations, "CREATED");
+    }
+
+    @Test
+    void findWriteStatus() throws Exception {
+        String location = mockMvc.perform(post(BASE)
+                        .param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(newUser("pending", 0))))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+        awaitDone(List.of(location), "CREATED");
+        measure("GET /pending/{id}", i -> mockMvc.perform(get(path(location)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CREATED"))
+                .andExpect(jsonPath("$.idempotencyKey").value("qc-pending-0"))
+                .andReturn(), fixed(0, 0));
+    }
+
+    @Test
+    void saveAll() throws Exception {
+        // Key, email and user name lookups, INSERT batch and token batch, plus a users_seq call per block started
+        measure("POST /batch", i -> mockMvc.perform(post(BASE + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(newUsers("batch", i))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(BATCH_SIZE))
+                .andExpect(jsonPath("$.results[*].status", everyItem(is("CREATED"))))
+                .andReturn(), result -> {
+            long blocks = blocksStarted(ids(result, "$.results[*].userId"));
+            return new Cost(5 + blocks, blocks);
+        });
+    }
+
+    @Test
+    void upsertAll() throws Exception {
+        // Unique column lookup, MERGE, read-back and token batch, plus a users_seq call per block started
+        measure("POST /upsert", i -> mockMvc.perform(post(BASE + "/upsert")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(newUsers("upsert", i))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(BATCH_SIZE))
+                .andExpect(jsonPath("$.results[*].user.user_name", hasSize(BATCH_SIZE)))
+                .andReturn(), result -> {
+            long blocks = blocksStarted(ids(result, "$.results[*].userId"));
+            return new Cost(4 + blocks, BATCH_SIZE + blocks);
+        });
+    }
+
+    @Test
+    void importFile() throws Exception {
+        // The file is spooled and handed to the import executor; no statement on the request thread
+        List<String> locations = new ArrayList<>();
+        measure("POST /import", i -> {
+            MvcResult result = mockMvc.perform(multipart(BASE + "/import")
+                            .file(ndjson("import", i)))
+                    .andExpect(status().isAccepted())
+                    .andExpect(jsonPath("$.jobId").value(notNullValue()))
+                    .andExpect(jsonPath("$.fileName").value("users.ndjson"))
+                    .andReturn();
+            locations.add(result.getResponse().getHeader(HttpHeaders.LOCATION));
+            return result;
+        }, fixed(0, 0));
+        awaitDone(locations, "COMPLETED");
+    }
+
+    @Test
+    void findImportJob() throws Exception {
+        String location = mockMvc.perform(multipart(BASE + "/import")
+                        .file(ndjson("import-job", 0)))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+        awaitDone(List.of(location), "COMPLETED");
+        measure("GET /import/{jobId}", i -> mockMvc.perform(get(path(location)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.created").value(BATCH_SIZE))
+                .andReturn(), fixed(0, 0));
+    }
+
+    @Test
+    void findAllById() throws Exception {
+        // One IN query per 100 ids
+        measure("GET /?ids=", i -> mockMvc.perform(get(BASE)
+                        .param("ids", seededIds(i, 50).stream().map(String::valueOf).toArray(String[]::new)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(50)))
+                .andExpect(jsonPath("$.users[0].user_id").value(seededIds(i, 50).get(0)))
+                .andExpect(jsonPath("$.missing", hasSize(0)))
+                .andReturn(), fixed(1, 50));
+    }
+
+    @Test
+    void lookup() throws Exception {
+        measure("POST /lookup", i -> mockMvc.perform(post(BASE + "/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(seededIds(i, 150))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users", hasSize(150)))
+                .andExpect(jsonPath("$.missing", hasSize(0)))
+                .andReturn(), fixed(2, 150));
+    }
+
+    @Test
+    void findAll() throws Exception {
+        long live = liveCount();
+        long written = Math.min(live, findAllMaxRows);
+        int firstLimit = Math.min(findAllChunkSize, findAllMaxRows);
+        long firstRows = Math.min(live, firstLimit);
+        boolean full = firstRows == firstLimit;
+        // First chunk on the request thread, plus the one-row probe past the cap when that chunk is full
+        Cost requestThread = new Cost(full ? 2 : 1, firstRows + (full && live > findAllMaxRows ? 1 : 0));
+        // One query per further chunk, plus the empty read that ends a table of whole chunks
+        Cost streamed = new Cost(live >= findAllMaxRows ? (written - 1) / findAllChunkSize : written / findAllChunkSize,
+                written - firstRows);
+        measureStream("GET /", i -> {
+            MvcResult started = mockMvc.perform(get(BASE))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            return mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("X-Truncated", String.valueOf(live > findAllMaxRows)))
+                    .andExpect(jsonPath("$.length()").value(written))
+                    .andReturn();
+        }, fixed(requestThread.statements(), requestThread.rows()), streamed);
+    }
+
+    @Test
+    void checkAvailability() throws Exception {
+        // One EXISTS for the taken name, none once it is in the query cache; the free email
+        // costs one more only when the Bloom filter gives a false positive
+        measure("GET /availability", i -> mockMvc.perform(get(BASE + "/availability")
+                        .param("userName", user(i).userName())
+                        .param("email", "qc-free-" + i + "@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user_name").value(user(i).userName()))
+                .andExpect(jsonPath("$.user_name_available").value(false))
+                .andExpect(jsonPath("$.email_available").value(true))
+                .andReturn(), fixed(2, 2));
+    }
+
+    @Test
+    void findById() throws Exception {
+        // One SELECT by primary key when the user is not in the second-level cache
+        measure("GET /{id}", i -> {
+            evict(user(i).userId());
+            return findById(user(i));
+        }, fixed(1, 1));
+        // None once it is
+        measure("GET /{id} cached", i -> {
+            findById(user(i));
+            return findById(user(i));
+        }, fixed(0, 0));
+    }
+
+    @Test
+    void findByIdNotModified() throws Exception {
+        // Answered from the version alone
+        measure("GET /{id} If-None-Match", i -> {
+            Long id = user(i).userId();
+            String etag = mockMvc.perform(get(BASE + "/{id}", id))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            return mockMvc.perform(get(BASE + "/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag))
+                    .andReturn();
+        }, fixed(1, 1));
+    }
+
+    @Test
+    void findArchivedById() throws Exception {
+        measure("GET /archived/{id}", i -> mockMvc.perform(get(BASE + "/archived/{id}", archivedId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user_id").value(archivedId))
+                .andReturn(), fixed(1, 1));
+    }
+
+    @Test
+    void update() throws Exception {
+        List<User> fixtures = fixtures("put", WARM_UP + iterations, 20001);
+        // Load (the user is evicted first), one UPDATE flushed once, token DELETE and token INSERT batch
+        measure("PUT /{id}", i -> {
+            User user = fixtures.get(i);
+            evict(user.getUserId());
+            // A different idempotency key in the body is ignored; the stored one is immutable
+            UserRequestDTO request = new UserRequestDTO("qc-put-other-key-" + i, "qc-put-new-" + i, "qc-put-new-" + i + "@example.com",
+                    "password", user.getDateOfBirth(), user.getDateOfLeaving(), user.getPostalCode());
+            return mockMvc.perform(put(BASE + "/{id}", user.getUserId())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(json(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.user_id").value(user.getUserId()))
+                    .andExpect(jsonPath("$.user_name").value("qc-put-new-" + i))
+                    .andExpect(jsonPath("$.email").value("qc-put-new-" + i + "@example.com"))
+                    .andExpect(jsonPath("$.idempotency_key").value(user.getIdempotencyKey()))
+                    .andReturn();
+        }, fixed(4, 1));
+    }
+
+    @Test
+    void partialUpdate() throws Exception {
+        List<User> fixtures = fixtures("patch", WARM_UP + iterations, 20002);
+        measure("PATCH /{id}", i -> {
+            UserPartialUpdateRequestDTO updates = new UserPartialUpdateRequestDTO();
+            updates.setUserName("qc-patch-new-" + i);
+            evict(fixtures.get(i).getUserId());
+            return mockMvc.perform(patch(BASE + "/{id}", fixtures.get(i).getUserId())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(json(updates)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.user_name").value("qc-patch-new-" + i))
+                    .andExpect(jsonPath("$.email").value(fixtures.get(i).getEmail()))
+                    .andReturn();
+        }, fixed(4, 1));
+    }
+
+    @Test
+    void deactivateAndActivate() throws Exception {
+        List<User> fixtures = fixtures("status", WARM_UP + iterations, 20003);
+        // Load (the user is evicted first) and one UPDATE each
+        measure("PATCH /{id}/deactivate", i -> {
+            evict(fixtures.get(i).getUserId());
+            return mockMvc.perform(patch(BASE + "/{id}/deactivate", fixtures.get(i).getUserId()))
+                    .andExpect(status().isNoContent())
+                    .andReturn();
+        }, fixed(2, 1));
+        measure("PATCH /{id}/activate", i -> {
+            evict(fixtures.get(i).getUserId());
+            return mockMvc.perform(patch(BASE + "/{id}/activate", fixtures.get(i).getUserId()))
+                    .andExpect(status().isOk())
+                    .andReturn();
+        }, fixed(2, 1));
+    }
+
+    @Test
+    void deactivateAllAndActivateAll() throws Exception {
+        // One UPDATE whatever the number of matching users; each call is undone unmeasured so every one changes them all
+        List<Long> ids = fixtures("bulk-ids", 100, 20004).stream().map(User::getUserId).toList();
+        UserStatusRequestDTO byIds = new UserStatusRequestDTO(ids, null, null);
+        measure("PATCH /deactivate ids", i -> {
+            MvcResult result = bulkStatus("/deactivate", byIds, ids.size());
+            bulkStatus("/activate", byIds, ids.size());
+            return result;
+        }, fixed(1, 0));
+        measure("PATCH /activate ids", i -> {
+            bulkStatus("/deactivate", byIds, ids.size());
+            return bulkStatus("/activate", byIds, ids.size());
+        }, fixed(1, 0));
+        int matching = fixtures("bulk-filters", 10, 20005).size();
+        UserStatusRequestDTO byFilters = new UserStatusRequestDTO(null, null,
+                List.of(new FilterRequestDTO("postalCode", "eq", 20005)));
+        measure("PATCH /deactivate filters", i -> {
+            MvcResult result = bulkStatus("/deactivate", byFilters, matching);
+            bulkStatus("/activate", byFilters, matching);
+            return result;
+        }, fixed(1, 0));
+        measure("PATCH /activate filters", i -> {
+            bulkStatus("/deactivate", byFilters, matching);
+            return bulkStatus("/activate", byFilters, matching);
+        }, fixed(1, 0));
+    }
+
+    @Test
+    void search() throws Exception {
+        // Page query and COUNT; the rows read are the page plus the count, never the table
+        measure("POST /search", i -> search(page(i, null))
+                .andExpect(jsonPath("$.content", hasSize(PAGE_SIZE)))
+                .andReturn(), fixed(2, PAGE_SIZE + 1));
+        // Token subqueries are part of the page query, not statements of their own; a short
+        // first page needs no COUNT
+        measure("POST /search text", i -> {
+            String term = SEED_PREFIX + "0000" + i % 10;
+            return search(page(0, term))
+                    .andExpect(jsonPath("$.content", hasSize(TERM_MATCHES)))
+                    .andExpect(jsonPath("$.content[*].user_name", everyItem(containsString(term))))
+                    .andReturn();
+        }, fixed(1, TERM_MATCHES));
+        measure("POST /search filters", i -> {
+            int postalCode = 10000 + i % 100;
+            PageRequestDTO pageRequest = page(0, null);
+            pageRequest.setFilters(List.of(new FilterRequestDTO("postalCode", "eq", postalCode)));
+            return search(pageRequest)
+                    .andExpect(jsonPath("$.content[*].postal_code", everyItem(is(postalCode))))
+                    .andReturn();
+        }, fixed(2, PAGE_SIZE + 1));
+        measure("POST /search includeDeleted", i -> {
+            PageRequestDTO pageRequest = page(i, null);
+            pageRequest.setIncludeDeleted(true);
+            return search(pageRequest)
+                    .andExpect(jsonPath("$.content", hasSize(PAGE_SIZE)))
+                    .andReturn();
+        }, fixed(2, PAGE_SIZE + 1));
+        // Keyset pages skip the COUNT and read one extra row to know whether another page follows
+        measure("POST /search keyset", i -> {
+            PageRequestDTO pageRequest = page(0, null);
+            pageRequest.setCursor("");
+            return search(pageRequest)
+                    .andExpect(jsonPath("$.content", hasSize(PAGE_SIZE)))
+                    .andExpect(jsonPath("$.nextCursor").value(notNullValue()))
+                    .andReturn();
+        }, fixed(1, PAGE_SIZE + 1));
+    }
+
+    @Test
+    void searchRejectsUnmappedSortField() throws Exception {
+        // Sort keys are selected with the page, so a field the response does not expose is
+        // refused before any query, in offset and keyset mode alike
+        measure("POST /search sortBy password", i -> {
+            PageRequestDTO pageRequest = page(0, null);
+            pageRequest.setSortBy("password");
+            if (i % 2 == 1) {
+                pageRequest.setCursor("");
+            }
+            return mockMvc.perform(post(BASE + "/search")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(json(pageRequest)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.errorMessage").value("Unsupported sort field: password"))
+                    .andReturn();
+        }, fixed(0, 0));
+    }
+
+    @Test
+    void export() throws Exception {
+        long live = liveCount();
+        // Nothing runs on the request thread; the body streams every live user with one query
+        measureStream("POST /export", i -> {
+            boolean csv = i % 2 == 1;
+            MvcResult started = mockMvc.perform(post(BASE + "/export")
+                            .param("format", csv ? "csv" : "ndjson")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(json(page(0, null))))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            MvcResult result = mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            // CSV adds a header line
+            assertThat(result.getResponse().getContentAsString().lines().count())
+                    .as("POST /export call %d lines", i).isEqualTo(live + (csv ? 1 : 0));
+            return result;
+        }, fixed(0, 0), new Cost(1, live));
+    }
+
+    /**
+     * Runs the call WARM_UP + querycount.iterations times, checking the statements and rows of
+     * every call against its bound and the p99 of the measured (non warm-up) calls.
+     */
+    private void measure(String endpoint, Call call, Bound bound) throws Exception {
+        measureStream(endpoint, call, bound, new Cost(0, 0));
+    }
+
+    /**
+     * Same as {@link #measure} for an endpoint with a streamed body, whose statements and rows
+     * must equal streamed exactly on every call.
+     */
+    private void measureStream(String endpoint, Call call, Bound bound, Cost streamed) throws Exception {
+        assertThat(iterations).as("querycount.iterations for a p99").isGreaterThanOrEqualTo(MIN_P99_SAMPLES);
+        List<Double> durations = new ArrayList<>();
+        for (int i = 0; i < WARM_UP + iterations; i++) {
+            double streamedStatements = streamTotal("user.stream.statements");
+            double streamedRows = streamTotal("user.stream.rows");
+            MvcResult result = call.perform(i);
+            Timing timing = Timing.parse(endpoint, result.getResponse().getHeader(RequestTiming.HEADER));
+            Cost max = bound.max(result);
+            assertThat(timing.statements()).as("%s call %d statements", endpoint, i).isLessThanOrEqualTo(max.statements());
+            assertThat(timing.rows()).as("%s call %d rows", endpoint, i).isLessThanOrEqualTo(max.rows());
+            assertThat(streamTotal("user.stream.statements") - streamedStatements)
+                    .as("%s call %d streamed statements", endpoint, i).isEqualTo((double) streamed.statements());
+            assertThat(streamTotal("user.stream.rows") - streamedRows)
+                    .as("%s call %d streamed rows", endpoint, i).isEqualTo((double) streamed.rows());
+            if (i >= WARM_UP) {
+                durations.add(timing.totalMillis());
+            }
+        }
+        List<Double> sorted = durations.stream().sorted().toList();
+        // Nearest rank
+        double p99 = sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+        assertThat(p99).as("%s p99 ms", endpoint).isLessThanOrEqualTo((double) maxP99.toMillis());
+    }
+
+    private double streamTotal(String name) {
+        return meterRegistry.find(name).summaries().stream().mapToDouble(DistributionSummary::totalAmount).sum();
+    }
+
+    private static Bound fixed(long statements, long rows) {
+        return result -> new Cost(statements, rows);
+    }
+
+    private static long blocksStarted(List<Long> ids) {
+        return ids.stream().filter(id -> Math.floorMod(id, blockSize) == blockOffset).count();
+    }
+
+    private static List<Long> ids(MvcResult result, String path) throws Exception {
+        Object value = JsonPath.read(result.getResponse().getContentAsString(), path);
+        List<?> values = value instanceof List<?> list ? list : List.of(value);
+        return values.stream().map(id -> ((Number) id).longValue()).toList();
+    }
+
+    private MvcResult findById(Seeded user) throws Exception {
+        return mockMvc.perform(get(BASE + "/{id}", user.userId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user_id").value(user.userId()))
+                .andExpect(jsonPath("$.user_name").value(user.userName()))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn();
+    }
+
+    private void evict(Long userId) {
+        entityManagerFactory.getCache().evict(User.class, userId);
+    }
+
+    private long liveCount() {
+        Long live = jdbcTemplate.queryForObject(LIVE_COUNT_SQL, Long.class);
+        return live == null ? 0 : live;
+    }
+
+    /**
+     * Polls each status location until it reports the expected status, so background writes
+     * are finished before the next test counts rows.
+     */
+    private void awaitDone(List<String> locations, String expected) throws Exception {
+        long deadline = System.nanoTime() + ASYNC_TIMEOUT.toNanos();
+        for (String location : locations) {
+            while (true) {
+                String status = JsonPath.read(mockMvc.perform(get(path(location)))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString(), "$.status");
+                if (expected.equals(status)) {
+                    break;
+                }
+                if (!"QUEUED".equals(status) && !"RUNNING".equals(status) || System.nanoTime() > deadline) {
+                    fail("%s ended as %s instead of %s", location, status, expected);
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private List<User> fixtures(String prefix, int count, int postalCode) {
+        List<User> fixtures = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            fixtures.add(newEntity(String.format("qc-%s-%06d", prefix, n), postalCode));
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            repository.saveAll(fixtures);
+            searchIndexService.indexNew(fixtures);
+        });
+        fixtures.forEach(user -> availabilityService.register(user.getUserName(), user.getEmail()));
+        return fixtures;
+    }
+
+    private static User newEntity(String userName, int postalCode) {
+        User user = new User();
+        user.setIdempotencyKey(userName);
+        user.setUserName(userName);
+        user.setEmail(userName + "@example.com");
+        user.setPassword("password");
+        user.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        user.setDateOfLeaving(LocalDate.now().plusYears(5));
+        user.setPostalCode(postalCode);
+        return user;
+    }
+
+    private MvcResult bulkStatus(String action, UserStatusRequestDTO request, int affected) throws Exception {
+        return mockMvc.perform(patch(BASE + action)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(affected))
+                .andReturn();
+    }
+
+    private ResultActions search(PageRequestDTO pageRequest) throws Exception {
+        return mockMvc.perform(post(BASE + "/search")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(pageRequest)))
+                .andExpect(status().isOk());
+    }
+
+    private PageRequestDTO page(int page, String search) {
+        PageRequestDTO pageRequest = new PageRequestDTO();
+        pageRequest.setPage(page % Math.max(1, users.size() / PAGE_SIZE));
+        pageRequest.setSize(PAGE_SIZE);
+        pageRequest.setSearch(search);
+        return pageRequest;
+    }
+
+    private static String path(String location) {
+        return location.substring(location.indexOf(BASE));
+    }
+
+    private static Seeded user(int index) {
+        return users.get(Math.floorMod(index, users.size()));
+    }
+
+    private static List<Long> seededIds(int from, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(user(from * count + i).userId());
+        }
+        return ids;
+    }
+
+    private UserRequestDTO newUser(String prefix, int n) {
+        String name = "qc-" + prefix + "-" + n;
+        return new UserRequestDTO(name, name, name + "@example.com", "password",
+                LocalDate.of(1990, 1, 1), LocalDate.now().plusYears(5), 12345);
+    }
+
+    private List<UserRequestDTO> newUsers(String prefix, int n) {
+        List<UserRequestDTO> requests = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            requests.add(newUser(prefix, n * BATCH_SIZE + i));
+        }
+        return requests;
+    }
+
+    private MockMultipartFile ndjson(String prefix, int n) throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (UserRequestDTO request : newUsers(prefix, n)) {
+            content.append(json(request)).append('\n');
+        }
+        return new MockMultipartFile("file", "users.ndjson", "application/x-ndjson",
+                content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String json(Object body) throws Exception {
+        return objectMapper.writeValueAsString(body);
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        MvcResult perform(int iteration) throws Exception;
+    }
+
+    /**
+     * Most statements and rows a call may need on the request thread, given its response.
+     */
+    @FunctionalInterface
+    private interface Bound {
+        Cost max(MvcResult result) throws Exception;
+    }
+
+    private record Timing(long statements, long rows, double totalMillis) {
+
+        private static Timing parse(String endpoint, String header) {
+            assertThat(header).as("%s %s header", endpoint, RequestTiming.HEADER).isNotNull();
+            Matcher db = DB_DESC.matcher(header);
+            Matcher total = TOTAL.matcher(header);
+            assertThat(db.find() && total.find()).as("%s %s header [%s]", endpoint, RequestTiming.HEADER, header).isTrue();
+            return new Timing(Long.parseLong(db.group(1)), Long.parseLong(db.group(2)), Double.parseDouble(total.group(1)));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.service;
+
+import com.ubaidsample.h2.dto.response.UserResponseDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyStoreTests {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    @Test
+    void replayReturnsCachedResponseWithoutCreating() {
+        IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(10), 100, WAIT);
+        AtomicInteger creates = new AtomicInteger();
+
+        UserResponseDTO first = store.execute("key-1", counting(creates, 1L));
+        UserResponseDTO replay = store.execute("key-1", counting(creates, 2L));
+
+        assertThat(replay).isSameAs(first);
+        assertThat(replay.getUserId()).isEqualTo(1L);
+        assertThat(creates).hasValue(1);
+    }
+
+    @Test
+    void differentKeysCreateSeparately() {
+        IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(10), 100, WAIT);
+        AtomicInteger creates = new AtomicInteger();
+
+        assertThat(store.execute("key-1", counting(creates, 1L)).getUserId()).isEqualTo(1L);
+        assertThat(store.execute("key-2", counting(creates, 2L)).getUserId()).isEqualTo(2L);
+        assertThat(creates).hasValue(2);
+    }
+
+    @Test
+    void expiredEntryRunsCreateAgain() throws InterruptedException {
+        IdempotencyStore store = new IdempotencyStore(Duration.ofMillis(50), 100, WAIT);
+        AtomicInteger creates = new AtomicInteger();
+
+        store.execute("key-1", counting(creates, 1L));
+        Thread.sleep(100);
+        UserResponseDTO afterExpiry = store.execute("key-1", counting(creates, 2L));
+
+        assertThat(afterExpiry.getUserId()).isEqualTo(2L);
+        assertThat(creates).hasValue(2);
+    }
+
+    @Test
+    void oldestEntriesAreEvictedBeyondMaxSize() {
+        IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(10), 2, WAIT);
+        AtomicInteger creates = new AtomicInteger();
+
+        store.execute("key-1", counting(creates, 1L));
+        store.execute("key-2", counting(creates, 2L));
+        store.execute("key-3", counting(creates, 3L));
+
+        assertThat(store.execute("key-3", counting(creates, 30L)).getUserId()).isEqualTo(3L);
+        assertThat(store.execute("key-2", counting(creates, 20L)).getUserId()).isEqualTo(2L);
+        assertThat(store.execute("key-1", counting(creates, 10L)).getUserId()).isEqualTo(10L);
+        assertThat(creates).hasValue(4);
+    }
+
+    @Test
+    void failedCreateIsNotCached() {
+        IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(10), 100, WAIT);
+        AtomicInteger creates = new AtomicInteger();
+
+        assertThatThrownBy(() -> store.execute("key-1", () -> {
+            creates.incrementAndGet();
+            throw new IllegalStateException("insert failed");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("insert failed");
+        UserResponseDTO retry = store.execute("key-1", counting(creates, 1L));
+
+        assertThat(retry.getUserId()).isEqualTo(1L);
+        assertThat(creates).hasValue(2);
+    }
+
+    @Test
+    void rememberedResponseIsReplayed() {
+        IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(10), 100, WAIT);
+        AtomicInteger creates = new AtomicInteger();
+        UserResponseDTO written = response(7L);
+
+        store.remember("key-1", written);
+
+        assertThat(store.execute("key-1", counting(creates, 1L))).isSameAs(written);
+        assertThat(creates).hasValue(0);
+    }
+
+    @Test
+    void concurrentRequestWaitsForInFlightCreate() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(10), 100, WAIT);
+        AtomicInteger creates = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<UserResponseDTO> first = CompletableFuture.supplyAsync(() -> store.execute("key-1", () -> {
+            creates.incrementAndGet();
+            started.countDown();
+            await(release);
+            return response(1L);
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<UserResponseDTO> second = CompletableFuture.supplyAsync(() -> store.execute("key-1", counting(creates, 2L)));
+        release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(creates).hasValue(1);
+    }
+
+    private static Supplier<UserResponseDTO> counting(AtomicInteger creates, Long userId) {
+        return () -> {
+            creates.incrementAndGet();
+            return response(userId);
+        };
+    }
+
+    private static UserResponseDTO response(Long userId) {
+        UserResponseDTO response = new UserResponseDTO();
+        response.setUserId(userId);
+        return response;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTests {
+
+    private static final int EXPECTED = 10_000;
+    private static final int PROBES = 100_000;
+
+    @Test
+    void addedValuesAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(EXPECTED, 0.01);
+        for (int i = 0; i < EXPECTED; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+        for (int i = 0; i < EXPECTED; i++) {
+            assertThat(filter.mightContain("user" + i + "@example.com")).as("value %d", i).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTargetAtExpectedSize() {
+        assertThat(falsePositiveRate(0.01, EXPECTED)).isLessThan(0.02);
+        assertThat(falsePositiveRate(0.001, EXPECTED)).isLessThan(0.002);
+    }
+
+    @Test
+    void overfilledFilterDegradesInsteadOfFailing() {
+        double rate = falsePositiveRate(0.01, EXPECTED * 4);
+
+        assertThat(rate).isGreaterThan(0.02).isLessThan(1.0);
+    }
+
+    @Test
+    void emptyAndTinyFiltersAnswerSafely() {
+        BloomFilter empty = new BloomFilter(0, 0.01);
+        assertThat(empty.mightContain("anyone")).isFalse();
+
+        empty.add("");
+        empty.add("a");
+        assertThat(empty.mightContain("")).isTrue();
+        assertThat(empty.mightContain("a")).isTrue();
+    }
+
+    @Test
+    void similarStringsAreSpreadApart() {
+        BloomFilter filter = new BloomFilter(EXPECTED, 0.01);
+        filter.add("john.doe");
+
+        assertThat(filter.mightContain("john.doe")).isTrue();
+        assertThat(filter.mightContain("john.dof")).isFalse();
+        assertThat(filter.mightContain("John.doe")).isFalse();
+    }
+
+    private static double falsePositiveRate(double target, int inserted) {
+        BloomFilter filter = new BloomFilter(EXPECTED, target);
+        for (int i = 0; i < inserted; i++) {
+            filter.add("taken-" + i);
+        }
+        int hits = 0;
+        for (int i = 0; i < PROBES; i++) {
+            if (filter.mightContain("free-" + i)) {
+                hits++;
+            }
+        }
+        return (double) hits / PROBES;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import com.ubaidsample.h2.exception.InvalidFilterException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorUtilTests {
+
+    @Test
+    void decodeReturnsWhatWasEncoded() {
+        String token = CursorUtil.encode("dateOfBirth", "DESC", LocalDate.of(1990, 1, 31), 42L);
+
+        CursorUtil.Cursor cursor = CursorUtil.decode(token);
+
+        assertThat(cursor).isEqualTo(new CursorUtil.Cursor("dateOfBirth", "desc", "1990-01-31", "42"));
+    }
+
+    @Test
+    void tokenIsUrlSafeEvenForSeparatorsInValues() {
+        String token = CursorUtil.encode("userName", "asc", "a.b/c+d=?", 7L);
+
+        assertThat(token).matches("[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+){3}");
+        assertThat(CursorUtil.decode(token).sortValue()).isEqualTo("a.b/c+d=?");
+    }
+
+    @Test
+    void encodeRejectsNullSortValueOrId() {
+        assertThatThrownBy(() -> CursorUtil.encode("email", "asc", null, 1L)).isInstanceOf(InvalidFilterException.class);
+        assertThatThrownBy(() -> CursorUtil.encode("email", "asc", "x", null)).isInstanceOf(InvalidFilterException.class);
+    }
+
+    @Test
+    void decodeRejectsWrongNumberOfParts() {
+        String token = CursorUtil.encode("userId", "asc", 5L, 5L);
+
+        assertThatThrownBy(() -> CursorUtil.decode("")).isInstanceOf(InvalidFilterException.class);
+        assertThatThrownBy(() -> CursorUtil.decode(token + ".eA")).isInstanceOf(InvalidFilterException.class);
+        assertThatThrownBy(() -> CursorUtil.decode(token.substring(0, token.lastIndexOf('.'))))
+                .isInstanceOf(InvalidFilterException.class);
+    }
+
+    @Test
+    void decodeRejectsInvalidBase64() {
+        assertThatThrownBy(() -> CursorUtil.decode("dXNlcklk.YXNj.!!.NQ"))
+                .isInstanceOf(InvalidFilterException.class)
+                .hasMessage("Invalid pagination cursor");
+        assertThatThrownBy(() -> CursorUtil.decode("a.b.c.d")).isInstanceOf(InvalidFilterException.class);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ETagUtilTests {
+
+    private static final String ETAG = ETagUtil.of(12L, 3L);
+
+    @Test
+    void tagIsQuotedIdAndVersion() {
+        assertThat(ETAG).isEqualTo("\"12-3\"");
+    }
+
+    @Test
+    void ifNoneMatchUsesWeakComparison() {
+        assertThat(ETagUtil.noneMatchHit("\"12-3\"", ETAG)).isTrue();
+        assertThat(ETagUtil.noneMatchHit("W/\"12-3\"", ETAG)).isTrue();
+        assertThat(ETagUtil.noneMatchHit("\"12-2\"", ETAG)).isFalse();
+        assertThat(ETagUtil.noneMatchHit("12-3", ETAG)).isFalse();
+    }
+
+    @Test
+    void ifNoneMatchAcceptsListsAndWildcard() {
+        assertThat(ETagUtil.noneMatchHit("\"1-1\", W/\"12-3\" ,\"9-9\"", ETAG)).isTrue();
+        assertThat(ETagUtil.noneMatchHit("\"1-1\",\"9-9\"", ETAG)).isFalse();
+        assertThat(ETagUtil.noneMatchHit("*", ETAG)).isTrue();
+        assertThat(ETagUtil.noneMatchHit(" * ", ETAG)).isTrue();
+    }
+
+    @Test
+    void ifNoneMatchMissingOrBlankNeverHits() {
+        assertThat(ETagUtil.noneMatchHit(null, ETAG)).isFalse();
+        assertThat(ETagUtil.noneMatchHit("", ETAG)).isFalse();
+        assertThat(ETagUtil.noneMatchHit("   ", ETAG)).isFalse();
+    }
+
+    @Test
+    void ifMatchUsesStrongComparison() {
+        assertThat(ETagUtil.matchFailed("\"12-3\"", ETAG)).isFalse();
+        assertThat(ETagUtil.matchFailed("W/\"12-3\"", ETAG)).isTrue();
+        assertThat(ETagUtil.matchFailed("\"12-2\"", ETAG)).isTrue();
+        assertThat(ETagUtil.matchFailed("W/\"12-3\", \"12-3\"", ETAG)).isFalse();
+        assertThat(ETagUtil.matchFailed("*", ETAG)).isFalse();
+    }
+
+    @Test
+    void ifMatchAbsentPassesButBlankFails() {
+        assertThat(ETagUtil.matchFailed(null, ETAG)).isFalse();
+        assertThat(ETagUtil.matchFailed("", ETAG)).isTrue();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import com.ubaidsample.h2.entity.User;
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityUtilTests {
+
+    static class Sample {
+        @Id
+        private Long id;
+        @Column(nullable = false)
+        private String code;
+        @Column(name = "closed_on")
+        private LocalDate closedOn;
+        private String note;
+        private int rank;
+    }
+
+    @Test
+    void idPrimitivesAndNotNullColumnsAreNonNullable() {
+        assertThat(EntityUtil.isNonNullable(Sample.class, "id")).isTrue();
+        assertThat(EntityUtil.isNonNullable(Sample.class, "code")).isTrue();
+        assertThat(EntityUtil.isNonNullable(Sample.class, "rank")).isTrue();
+    }
+
+    @Test
+    void nullableColumnsPlainFieldsAndUnknownNamesAreNullable() {
+        assertThat(EntityUtil.isNonNullable(Sample.class, "closedOn")).isFalse();
+        assertThat(EntityUtil.isNonNullable(Sample.class, "note")).isFalse();
+        assertThat(EntityUtil.isNonNullable(Sample.class, "missing")).isFalse();
+    }
+
+    @Test
+    void userSortFieldsFollowTheirColumns() {
+        assertThat(EntityUtil.isNonNullable(User.class, "userName")).isTrue();
+        assertThat(EntityUtil.isNonNullable(User.class, "dateOfBirth")).isTrue();
+        // The embedded audit history has nullable columns (updatedBy, deletedDate, ...)
+        assertThat(EntityUtil.isNonNullable(User.class, "auditHistoryDTO")).isFalse();
+    }
+}
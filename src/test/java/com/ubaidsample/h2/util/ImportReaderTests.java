@@ -0,0 +1,142 @@
+/*
+ * @author Muhammad Ubaid Ur Raheem Ahmad AKA Shahbaz Haroon
+ * Email: shahbazhrn@gmail.com
+ * Cell: +923002585925
+ * GitHub: https://github.com/ShahbazHaroon
+ */
+
+package com.ubaidsample.h2.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ubaidsample.h2.dto.request.UserRequestDTO;
+import com.ubaidsample.h2.exception.InvalidFileTypeException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImportReaderTests {
+
+    private static final String HEADER = "idempotency_key,user_name,email,password,date_of_birth,date_of_leaving,postal_code\n";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resolveFormatPrefersParameterThenExtension() {
+        assertThat(ImportReader.resolveFormat("CSV", "users.ndjson")).isEqualTo(ImportReader.CSV);
+        assertThat(ImportReader.resolveFormat(null, "Users.CSV")).isEqualTo(ImportReader.CSV);
+        assertThat(ImportReader.resolveFormat(" ", "users.jsonl")).isEqualTo(ImportReader.NDJSON);
+        assertThatThrownBy(() -> ImportReader.resolveFormat(null, "users.xlsx")).isInstanceOf(InvalidFileTypeException.class);
+        assertThatThrownBy(() -> ImportReader.resolveFormat("xml", "users.csv")).isInstanceOf(InvalidFileTypeException.class);
+    }
+
+    @Test
+    void csvReadsPlainRow() throws IOException {
+        List<ImportReader.Row<UserRequestDTO>> rows = readCsv(HEADER
+                + "IDEMP-1,liam.brown,liam@example.com,pass123,1991-05-20,2060-12-31,56006\n");
+
+        assertThat(rows).hasSize(1);
+        UserRequestDTO user = rows.get(0).value();
+        assertThat(rows.get(0).rowNumber()).isEqualTo(1);
+        assertThat(user.getUserName()).isEqualTo("liam.brown");
+        assertThat(user.getDateOfBirth()).isEqualTo(LocalDate.of(1991, 5, 20));
+        assertThat(user.getPostalCode()).isEqualTo(56006);
+    }
+
+    @Test
+    void csvQuotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        List<ImportReader.Row<UserRequestDTO>> rows = readCsv(HEADER
+                + "IDEMP-1,\"brown, liam\",liam@example.com,\"pa\"\"ss\nword\",1991-05-20,2060-12-31,56006\r\n");
+
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).error()).isNull();
+        assertThat(rows.get(0).value().getUserName()).isEqualTo("brown, liam");
+        assertThat(rows.get(0).value().getPassword()).isEqualTo("pa\"ss\nword");
+    }
+
+    @Test
+    void csvToleratesBomPaddedHeaderAndBlankLines() throws IOException {
+        List<ImportReader.Row<UserRequestDTO>> rows = readCsv("\uFEFFidempotency_key, user_name ,email\n"
+                + "\n"
+                + "IDEMP-1,liam.brown,liam@example.com\n"
+                + "\n");
+
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).value().getIdempotencyKey()).isEqualTo("IDEMP-1");
+        assertThat(rows.get(0).value().getUserName()).isEqualTo("liam.brown");
+    }
+
+    @Test
+    void csvLastRowWithoutNewlineIsRead() throws IOException {
+        List<ImportReader.Row<UserRequestDTO>> rows = readCsv("idempotency_key,user_name\nIDEMP-1,\"liam\"");
+
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).value().getUserName()).isEqualTo("liam");
+    }
+
+    @Test
+    void csvEmptyCellsAreMissingValues() throws IOException {
+        List<ImportReader.Row<UserRequestDTO>> rows = readCsv(HEADER
+                + "IDEMP-1,,liam@example.com,pass123,1991-05-20,2060-12-31,\n");
+
+        assertThat(rows.get(0).value().getUserName()).isNull();
+        assertThat(rows.get(0).value().getPostalCode()).isNull();
+    }
+
+    @Test
+    void csvBadRowsAreReportedWithoutStoppingTheRead() throws IOException {
+        List<ImportReader.Row<UserRequestDTO>> rows = readCsv(HEADER
+                + "IDEMP-1,liam.brown,liam@example.com\n"
+                + "IDEMP-2,emma.stone,emma@example.com,pass123,not-a-date,2060-12-31,56005\n"
+                + "IDEMP-3,noah.green,noah@example.com,pass123,1990-01-01,2060-12-31,56007\n");
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0).error()).isEqualTo("Expected 7 columns but found 3");
+        assertThat(rows.get(1).error()).startsWith("Invalid value");
+        assertThat(rows.get(2).error()).isNull();
+        assertThat(rows.get(2).rowNumber()).isEqualTo(3);
+    }
+
+    @Test
+    void ndjsonSkipsBlankLinesAndReportsMalformedJson() throws IOException {
+        List<ImportReader.Row<UserRequestDTO>> rows = read(ImportReader.NDJSON,
+                "{\"idempotency_key\":\"IDEMP-1\",\"user_name\":\"liam.brown\"}\n"
+                        + "\n"
+                        + "{\"idempotency_key\":\n"
+                        + "{\"idempotency_key\":\"IDEMP-3\",\"postal_code\":56007}\n");
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0).value().getUserName()).isEqualTo("liam.brown");
+        assertThat(rows.get(1).error()).startsWith("Malformed JSON");
+        assertThat(rows.get(1).rowNumber()).isEqualTo(2);
+        assertThat(rows.get(2).value().getPostalCode()).isEqualTo(56007);
+    }
+
+    private List<ImportReader.Row<UserRequestDTO>> readCsv(String content) throws IOException {
+        return read(ImportReader.CSV, content);
+    }
+
+    private List<ImportReader.Row<UserRequestDTO>> read(String format, String content) throws IOException {
+        Path file = Files.writeString(dir.resolve("users." + format), content, StandardCharsets.UTF_8);
+        List<ImportReader.Row<UserRequestDTO>> rows = new ArrayList<>();
+        try (ImportReader<UserRequestDTO> reader = new ImportReader<>(objectMapper, file, format, UserRequestDTO.class)) {
+            ImportReader.Row<UserRequestDTO> row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}